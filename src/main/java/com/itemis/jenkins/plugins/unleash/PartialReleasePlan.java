@@ -0,0 +1,450 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.itemis.jenkins.plugins.unleash.history.LastReleases;
+import com.itemis.jenkins.plugins.unleash.history.ReleaseBuildRecord;
+import com.itemis.jenkins.plugins.unleash.util.MavenUtil;
+import com.itemis.jenkins.plugins.unleash.util.PomCoordinates;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.maven.MavenModule;
+import hudson.maven.MavenModuleSet;
+import hudson.maven.ModuleDependency;
+import hudson.maven.ModuleName;
+import hudson.model.TaskListener;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+/**
+ * The scope of a partial release which only covers the modules that changed since the last successful release, the
+ * modules depending on them and their parent POMs. The changes are determined by diffing the directory of the root POM
+ * against the SCM tag of the last successful release (see
+ * {@link com.itemis.jenkins.plugins.unleash.permalinks.LastSuccessfulReleasePermalink}). POMs that only differ in the
+ * versions and the SCM tag, which the release itself updates after tagging, don't count as changed.<br>
+ * If the scope can't be determined or covers all modules anyway, the plan falls back to a full release and states the
+ * reason.
+ */
+public final class PartialReleasePlan {
+  /**
+   * The elements of a POM that the release updates after tagging, f.i. {@code <version>1.2.0</version>} or
+   * {@code <tag>HEAD</tag>}.
+   */
+  private static final Pattern VERSION_OR_TAG = Pattern.compile("<(version|tag)>[^<]*</\\1>");
+
+  private static final Pattern VERSION = Pattern.compile("<version>([^<]*)</version>");
+
+  private final String baseTag;
+
+  private final List<MavenModule> changedModules;
+
+  private final List<MavenModule> affectedModules;
+
+  private final List<MavenModule> ancestorModules;
+
+  private final String fullReleaseReason;
+
+  private PartialReleasePlan(String baseTag, List<MavenModule> changedModules, List<MavenModule> affectedModules,
+      List<MavenModule> ancestorModules, String fullReleaseReason) {
+    this.baseTag = baseTag;
+    this.changedModules = changedModules;
+    this.affectedModules = affectedModules;
+    this.ancestorModules = ancestorModules;
+    this.fullReleaseReason = fullReleaseReason;
+  }
+
+  static PartialReleasePlan fullRelease(String baseTag, String reason) {
+    return new PartialReleasePlan(baseTag, Collections.<MavenModule> emptyList(),
+        Collections.<MavenModule> emptyList(), Collections.<MavenModule> emptyList(), reason);
+  }
+
+  /**
+   * Computes the plan for the given workspace.
+   *
+   * @param defaultTagNamePattern the tag name pattern to use if the last release didn't record its pattern.
+   */
+  public static PartialReleasePlan compute(MavenModuleSet project, FilePath workspace, Launcher launcher,
+      TaskListener listener, String defaultTagNamePattern) throws IOException, InterruptedException {
+    MavenModule rootModule = project.getRootModule();
+    if (rootModule == null || workspace == null) {
+      return fullRelease(null, "The workspace and the modules of the project are unknown.");
+    }
+
+    ReleaseBuildRecord lastRelease = LastReleases.get().getLastSuccessful(project);
+    if (lastRelease == null || StringUtils.isBlank(lastRelease.getVersion())) {
+      return fullRelease(null, "There is no successful release yet.");
+    }
+    String tagNamePattern = StringUtils.defaultIfBlank(lastRelease.getTagNamePattern(), defaultTagNamePattern);
+    String tag = resolveTagName(tagNamePattern, rootModule.getModuleName(), lastRelease.getVersion());
+    if (tag == null) {
+      return fullRelease(null, "The tag name pattern '" + tagNamePattern + "' of release #" + lastRelease.getNumber()
+          + " can't be resolved.");
+    }
+
+    // the changed files and the module paths are both made relative to the directory of the root POM
+    FilePath rootPomDir = workspace.child(MavenUtil.getPathToPom(rootModule, project)).getParent();
+    List<String> changedFiles = diff(rootPomDir, launcher, listener, tag);
+    if (changedFiles == null) {
+      return fullRelease(tag, "Could not diff the workspace against the tag '" + tag + "'.");
+    }
+    changedFiles.removeAll(getVersionOnlyPoms(rootPomDir, launcher, listener, tag, changedFiles));
+
+    Collection<MavenModule> modules = project.getModules();
+    List<MavenModule> changedModules = getChangedModules(modules, rootModule, changedFiles);
+    if (changedModules.isEmpty()) {
+      return fullRelease(tag, "No module changed since the tag '" + tag + "'.");
+    }
+    List<MavenModule> affectedModules = getAffectedModules(modules, changedModules);
+    List<MavenModule> ancestorModules = getAncestorModules(project, workspace, affectedModules);
+    if (affectedModules.size() + ancestorModules.size() >= modules.size()) {
+      return new PartialReleasePlan(tag, changedModules, affectedModules, ancestorModules,
+          "All modules are affected by the changes.");
+    }
+    return new PartialReleasePlan(tag, changedModules, affectedModules, ancestorModules, null);
+  }
+
+  /**
+   * Resolves the project expressions that are known without evaluating the POM, f.i. {@code @{project.version}}.
+   *
+   * @return the tag name or {@code null} if the pattern contains other expressions.
+   */
+  static String resolveTagName(String tagNamePattern, ModuleName rootModuleName, String version) {
+    if (StringUtils.isBlank(tagNamePattern)) {
+      return null;
+    }
+    String tag = tagNamePattern.trim().replace("@{project.version}", version)
+        .replace("@{project.artifactId}", rootModuleName.artifactId)
+        .replace("@{project.groupId}", rootModuleName.groupId);
+    return tag.contains("@{") ? null : tag;
+  }
+
+  /**
+   * @return the paths of all files that differ from the tag relative to the given directory or {@code null} if the
+   *         diff failed.
+   */
+  private static List<String> diff(FilePath dir, Launcher launcher, TaskListener listener, String tag)
+      throws IOException, InterruptedException {
+    String output = git(dir, launcher, listener, "diff", "--name-only", "--no-renames", "--relative",
+        "refs/tags/" + tag);
+    if (output == null) {
+      return null;
+    }
+    List<String> files = Lists.newArrayList();
+    for (String line : output.split("\n")) {
+      String file = line.trim();
+      if (!file.isEmpty()) {
+        files.add(file);
+      }
+    }
+    return files;
+  }
+
+  /**
+   * @return the POMs among the changed files which only differ from the tag in lines the release updates after
+   *         tagging: the versions, which are set to the next development versions, and the SCM tag.
+   */
+  private static Set<String> getVersionOnlyPoms(FilePath dir, Launcher launcher, TaskListener listener, String tag,
+      List<String> changedFiles) throws IOException, InterruptedException {
+    List<String> arguments = Lists.newArrayList("diff", "-U0", "--no-color", "--no-ext-diff", "--no-renames",
+        "--no-prefix", "--relative", "refs/tags/" + tag, "--");
+    int poms = 0;
+    for (String file : changedFiles) {
+      if (file.equals("pom.xml") || file.endsWith("/pom.xml")) {
+        arguments.add(file);
+        poms++;
+      }
+    }
+    Set<String> versionOnlyPoms = Sets.newHashSet();
+    if (poms == 0) {
+      return versionOnlyPoms;
+    }
+    String output = git(dir, launcher, listener, arguments.toArray(new String[0]));
+    if (output == null) {
+      // all POMs count as changed
+      return versionOnlyPoms;
+    }
+
+    String file = null;
+    boolean versionOnly = false;
+    boolean inHunk = false;
+    List<String> removed = Lists.newArrayList();
+    List<String> added = Lists.newArrayList();
+    for (String line : output.split("\n")) {
+      if (line.startsWith("diff --git ") || line.startsWith("@@")) {
+        versionOnly &= isVersionOnlyHunk(removed, added);
+        removed.clear();
+        added.clear();
+      }
+      if (line.startsWith("diff --git ")) {
+        if (file != null && versionOnly) {
+          versionOnlyPoms.add(file);
+        }
+        file = null;
+        versionOnly = true;
+        inHunk = false;
+      } else if (line.startsWith("@@")) {
+        inHunk = true;
+      } else if (inHunk && line.startsWith("-")) {
+        removed.add(line.substring(1));
+      } else if (inHunk && line.startsWith("+")) {
+        added.add(line.substring(1));
+      } else if (!inHunk && (line.startsWith("--- ") || line.startsWith("+++ "))) {
+        String path = line.substring(4);
+        if ("/dev/null".equals(path)) {
+          // added or deleted POMs are real changes
+          versionOnly = false;
+        } else {
+          file = path;
+        }
+      } else if (!inHunk && !line.startsWith("index ")) {
+        // mode changes, binary files and the like
+        versionOnly &= line.isEmpty();
+      }
+    }
+    versionOnly &= isVersionOnlyHunk(removed, added);
+    if (file != null && versionOnly) {
+      versionOnlyPoms.add(file);
+    }
+    return versionOnlyPoms;
+  }
+
+  /**
+   * @return {@code true} if the removed and the added lines of a hunk only differ in versions and SCM tags and all
+   *         added versions are development versions.
+   */
+  private static boolean isVersionOnlyHunk(List<String> removed, List<String> added) {
+    if (removed.size() != added.size()) {
+      return false;
+    }
+    for (int i = 0; i < removed.size(); i++) {
+      String addedLine = added.get(i);
+      if (!VERSION_OR_TAG.matcher(removed.get(i)).replaceAll("<$1/>")
+          .equals(VERSION_OR_TAG.matcher(addedLine).replaceAll("<$1/>"))) {
+        return false;
+      }
+      Matcher version = VERSION.matcher(addedLine);
+      while (version.find()) {
+        if (!version.group(1).endsWith("-SNAPSHOT")) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the standard output of the git command or {@code null} if it failed.
+   */
+  private static String git(FilePath dir, Launcher launcher, TaskListener listener, String... arguments)
+      throws IOException, InterruptedException {
+    List<String> command = Lists.newArrayList("git", "-c", "core.quotePath=false");
+    Collections.addAll(command, arguments);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int exitCode = launcher.launch().cmds(command).pwd(dir).stdout(out).stderr(listener.getLogger()).quiet(true)
+        .join();
+    return exitCode == 0 ? new String(out.toByteArray(), StandardCharsets.UTF_8) : null;
+  }
+
+  /**
+   * Assigns each changed file to the module with the longest relative path that contains it. The module paths are
+   * made relative to the directory of the root module like the paths of the changed files.
+   */
+  private static List<MavenModule> getChangedModules(Collection<MavenModule> modules, MavenModule rootModule,
+      List<String> changedFiles) {
+    String rootPath = StringUtils.strip(StringUtils.defaultString(rootModule.getRelativePath()), "/");
+    Map<String, MavenModule> modulesByPath = Maps.newHashMap();
+    for (MavenModule module : modules) {
+      String path = StringUtils.strip(StringUtils.defaultString(module.getRelativePath()), "/");
+      if (!rootPath.isEmpty()) {
+        path = path.equals(rootPath) ? "" : StringUtils.removeStart(path, rootPath + "/");
+      }
+      modulesByPath.put(path, module);
+    }
+
+    Set<MavenModule> changedModules = Sets.newLinkedHashSet();
+    for (String file : changedFiles) {
+      String path = file;
+      while (true) {
+        int separator = path.lastIndexOf('/');
+        path = separator < 0 ? "" : path.substring(0, separator);
+        MavenModule module = modulesByPath.get(path);
+        if (module != null) {
+          changedModules.add(module);
+          break;
+        }
+        if (path.isEmpty()) {
+          break;
+        }
+      }
+    }
+    return Lists.newArrayList(changedModules);
+  }
+
+  /**
+   * @return the changed modules and all modules depending on them, directly or transitively.
+   */
+  private static List<MavenModule> getAffectedModules(Collection<MavenModule> modules,
+      List<MavenModule> changedModules) {
+    Map<ModuleName, List<MavenModule>> dependents = Maps.newHashMap();
+    for (MavenModule module : modules) {
+      for (ModuleDependency dependency : module.getDependencies()) {
+        ModuleName name = new ModuleName(dependency.groupId, dependency.artifactId);
+        List<MavenModule> list = dependents.get(name);
+        if (list == null) {
+          list = Lists.newArrayList();
+          dependents.put(name, list);
+        }
+        list.add(module);
+      }
+    }
+
+    Set<MavenModule> affected = Sets.newLinkedHashSet(changedModules);
+    Deque<MavenModule> queue = new ArrayDeque<>(changedModules);
+    while (!queue.isEmpty()) {
+      MavenModule module = queue.poll();
+      List<MavenModule> list = dependents.get(module.getModuleName());
+      if (list != null) {
+        for (MavenModule dependent : list) {
+          if (affected.add(dependent)) {
+            queue.add(dependent);
+          }
+        }
+      }
+    }
+    return Lists.newArrayList(affected);
+  }
+
+  /**
+   * @return the parent POMs of the affected modules, directly or transitively, which are not affected themselves. They
+   *         are released as well, otherwise the released modules would refer to a development version of their parent.
+   */
+  private static List<MavenModule> getAncestorModules(MavenModuleSet project, FilePath workspace,
+      List<MavenModule> affectedModules) {
+    Collection<MavenModule> modules = project.getModules();
+    Map<MavenModule, PomCoordinates> coordinates = MavenUtil.parseCoordinates(modules, project, workspace);
+    Map<ModuleName, MavenModule> modulesByName = Maps.newHashMap();
+    for (MavenModule module : modules) {
+      modulesByName.put(module.getModuleName(), module);
+    }
+
+    Set<MavenModule> ancestors = Sets.newLinkedHashSet();
+    for (MavenModule module : affectedModules) {
+      PomCoordinates pom = coordinates.get(module);
+      while (pom != null && pom.getParentGroupId() != null && pom.getParentArtifactId() != null) {
+        MavenModule parent = modulesByName.get(new ModuleName(pom.getParentGroupId(), pom.getParentArtifactId()));
+        if (parent == null || affectedModules.contains(parent) || !ancestors.add(parent)) {
+          break;
+        }
+        pom = coordinates.get(parent);
+      }
+    }
+    return Lists.newArrayList(ancestors);
+  }
+
+  /**
+   * @return {@code true} if only a part of the reactor is released.
+   */
+  public boolean isPartial() {
+    return this.fullReleaseReason == null;
+  }
+
+  public String getBaseTag() {
+    return this.baseTag;
+  }
+
+  public List<MavenModule> getChangedModules() {
+    return this.changedModules;
+  }
+
+  public List<MavenModule> getAffectedModules() {
+    return this.affectedModules;
+  }
+
+  public List<MavenModule> getAncestorModules() {
+    return this.ancestorModules;
+  }
+
+  /**
+   * @return all modules that are released: the affected modules and their parents.
+   */
+  public List<MavenModule> getReleasedModules() {
+    List<MavenModule> modules = Lists.newArrayList(this.affectedModules);
+    modules.addAll(this.ancestorModules);
+    return modules;
+  }
+
+  /**
+   * @return the reason why the whole reactor is released or {@code null} if this is a partial release.
+   */
+  public String getFullReleaseReason() {
+    return this.fullReleaseReason;
+  }
+
+  /**
+   * @return the value of the {@code -pl} option selecting all released modules. The dependents are listed explicitly
+   *         since {@code -amd} would also select all children of the released parent POMs.
+   */
+  public String getProjects() {
+    List<String> projects = Lists.newArrayList();
+    for (MavenModule module : getReleasedModules()) {
+      projects.add(module.getModuleName().toString());
+    }
+    return Joiner.on(',').join(projects);
+  }
+
+  JSONObject toJSON() {
+    return new JSONObject().element("partial", isPartial()).element("baseTag", this.baseTag)
+        .element("fullReleaseReason", this.fullReleaseReason).element("changedModules", toJSON(this.changedModules))
+        .element("affectedModules", toJSON(this.affectedModules))
+        .element("ancestorModules", toJSON(this.ancestorModules));
+  }
+
+  private static JSONArray toJSON(List<MavenModule> modules) {
+    JSONArray array = new JSONArray();
+    for (MavenModule module : modules) {
+      array.add(module.getModuleName().toString());
+    }
+    return array;
+  }
+}
@@ -25,33 +25,49 @@ package com.itemis.jenkins.plugins.unleash;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.apache.commons.lang.StringUtils;
-import org.apache.maven.model.Model;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest2;
 import org.kohsuke.stapler.StaplerResponse2;
+import org.kohsuke.stapler.verb.GET;
 import org.kohsuke.stapler.verb.POST;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Optional;
 import com.google.common.collect.Lists;
+import com.itemis.jenkins.plugins.unleash.UnleashReleasePlanAction.ModulePlan;
+import com.itemis.jenkins.plugins.unleash.history.ReleaseHistory;
 import com.itemis.jenkins.plugins.unleash.permalinks.LastFailedReleasePermalink;
 import com.itemis.jenkins.plugins.unleash.permalinks.LastSuccessfulReleasePermalink;
 import com.itemis.jenkins.plugins.unleash.util.MavenUtil;
+import com.itemis.jenkins.plugins.unleash.util.PomCoordinates;
 import com.itemis.maven.plugins.unleash.util.MavenVersionUtil;
 import com.itemis.maven.plugins.unleash.util.VersionUpgradeStrategy;
 
+import hudson.FilePath;
 import hudson.maven.MavenModule;
 import hudson.maven.MavenModuleSet;
+import hudson.model.CauseAction;
+import hudson.model.Computer;
+import hudson.model.Item;
 import hudson.model.ParameterDefinition;
 import hudson.model.ParameterValue;
 import hudson.model.ParametersAction;
 import hudson.model.ParametersDefinitionProperty;
 import hudson.model.PermalinkProjectAction;
+import hudson.model.Queue;
+import hudson.model.TaskListener;
 import hudson.security.Permission;
 import hudson.security.PermissionGroup;
 import hudson.security.PermissionScope;
@@ -67,7 +83,6 @@ import net.sf.json.JSONObject;
 // The class still contains substantial parts of the original implementation
 // original authors: James Nord & Dominik Bartholdi
 public class UnleashAction implements PermalinkProjectAction {
-  @SuppressWarnings("unused")
   private static final Logger LOGGER = Logger.getLogger(UnleashAction.class.getName());
 
   public static final PermissionGroup PERMISSIONS = new PermissionGroup(UnleashAction.class,
@@ -97,6 +112,10 @@ public class UnleashAction implements PermalinkProjectAction {
 
   private String scmMessagePrefix;
 
+  private transient Future<List<ModuleVersion>> moduleVersions;
+
+  private transient Future<PartialReleasePlan> partialReleasePlan;
+
   public UnleashAction(MavenModuleSet project, boolean useGlobalVersion, boolean allowLocalReleaseArtifacts,
       boolean commitBeforeTagging, boolean errorLog, boolean debugLog, VersionUpgradeStrategy versionUpgradeStrategy,
       String tagNamePattern, String scmMessagePrefix) {
@@ -111,6 +130,10 @@ public class UnleashAction implements PermalinkProjectAction {
     this.scmMessagePrefix = scmMessagePrefix;
   }
 
+  public MavenModuleSet getProject() {
+    return this.project;
+  }
+
   public List<ParameterDefinition> getParameterDefinitions() {
     ParametersDefinitionProperty property = this.project.getProperty(ParametersDefinitionProperty.class);
     List<ParameterDefinition> params = Collections.emptyList();
@@ -140,66 +163,212 @@ public class UnleashAction implements PermalinkProjectAction {
     return Lists.newArrayList(LastSuccessfulReleasePermalink.INSTANCE, LastFailedReleasePermalink.INSTANCE);
   }
 
+  /**
+   * @return the release history of the project which is exposed under {@code unleash/history/} and
+   *         {@code unleash/history/api/}.
+   */
+  public ReleaseHistory getHistory() {
+    this.project.checkPermission(Item.READ);
+    return new ReleaseHistory(this.project);
+  }
+
+  /**
+   * @return the release queue of the resource shared by this project or {@code null} if releases aren't throttled.
+   */
+  public UnleashReleaseThrottle.QueueStatus getReleaseQueueStatus() {
+    return UnleashReleaseThrottle.QueueStatus.of(this.project);
+  }
+
   public String computeReleaseVersion() {
-    String version = null;
-    Optional<Model> model = MavenUtil.parseModel(this.project.getRootModule(), this.project);
-    if (model.isPresent()) {
-      Optional<String> parsedVersion = MavenUtil.parseVersion(model.get());
-      if (parsedVersion.isPresent()) {
-        version = MavenVersionUtil.calculateReleaseVersion(parsedVersion.get());
-      }
+    return computeReleaseVersion(this.project.getRootModule());
+  }
+
+  public String computeReleaseVersion(MavenModule module) {
+    ModulePlan plan = getModulePlan(UnleashReleasePlanListener.getLastReleasePlan(this.project), module);
+    if (plan != null) {
+      return plan.getReleaseVersion();
     }
+    return computeReleaseVersion(module, parseVersion(module).orNull());
+  }
 
-    if (StringUtils.isBlank(version)) {
-      MavenModule rootModule = this.project.getRootModule();
-      if (rootModule != null && StringUtils.isNotBlank(rootModule.getVersion())) {
-        version = MavenVersionUtil.calculateReleaseVersion(rootModule.getVersion());
-      }
+  public String computeNextDevelopmentVersion() {
+    return computeNextDevelopmentVersion(this.project.getRootModule());
+  }
+
+  public String computeNextDevelopmentVersion(MavenModule module) {
+    ModulePlan plan = getModulePlan(UnleashReleasePlanListener.getLastReleasePlan(this.project), module);
+    if (plan != null) {
+      return plan.getDevelopmentVersion(this.versionUpgradeStrategy);
     }
+    return computeNextDevelopmentVersion(module, parseVersion(module).orNull());
+  }
 
-    if (StringUtils.isNotBlank(version)) {
-      return version;
+  /**
+   * Computes the release and development versions of all modules of the project. The versions are taken from the
+   * release plan of the last build. Only modules missing from that plan are read from the workspace, using a single
+   * call to the agent.
+   */
+  public List<ModuleVersion> getModuleVersions() {
+    List<MavenModule> modules = getAllMavenModules();
+    UnleashReleasePlanAction releasePlan = UnleashReleasePlanListener.getLastReleasePlan(this.project);
+
+    List<MavenModule> unplannedModules = Lists.newArrayList();
+    for (MavenModule module : modules) {
+      if (getModulePlan(releasePlan, module) == null) {
+        unplannedModules.add(module);
+      }
     }
-    return "NaN";
+    Map<MavenModule, PomCoordinates> coordinates = MavenUtil.parseCoordinates(unplannedModules, this.project);
+
+    List<ModuleVersion> moduleVersions = Lists.newArrayListWithCapacity(modules.size());
+    for (MavenModule module : modules) {
+      ModulePlan plan = getModulePlan(releasePlan, module);
+      if (plan != null) {
+        moduleVersions.add(new ModuleVersion(module, plan.getReleaseVersion(),
+            plan.getDevelopmentVersion(this.versionUpgradeStrategy)));
+      } else {
+        PomCoordinates pomCoordinates = coordinates.get(module);
+        String version = pomCoordinates != null ? pomCoordinates.getEffectiveVersion() : null;
+        moduleVersions.add(new ModuleVersion(module, computeReleaseVersion(module, version),
+            computeNextDevelopmentVersion(module, version)));
+      }
+    }
+    return moduleVersions;
   }
 
-  public String computeReleaseVersion(MavenModule module) {
-    String version = null;
-    if (module != null) {
-      Optional<Model> model = MavenUtil.parseModel(module, this.project);
-      if (model.isPresent()) {
-        Optional<String> parsedVersion = MavenUtil.parseVersion(model.get());
-        if (parsedVersion.isPresent()) {
-          version = MavenVersionUtil.calculateReleaseVersion(parsedVersion.get());
-        }
+  /**
+   * Serves the module versions page-wise as JSON. The versions are computed in the background so that the request
+   * never waits for the agent. As long as the computation is running the response only signals {@code pending} and
+   * the client is expected to ask again.
+   *
+   * @param start the index of the first module to return.
+   * @param limit the maximum number of modules to return.
+   * @param artifactId an optional filter, only modules whose artifactId contains this value are returned.
+   */
+  @GET
+  public HttpResponse doModuleVersions(@QueryParameter int start, @QueryParameter int limit,
+      @QueryParameter String artifactId) {
+    this.project.checkPermission(Item.READ);
+
+    Future<List<ModuleVersion>> future = getModuleVersionsFuture(false);
+    if (!future.isDone()) {
+      return HttpResponses.okJSON(new JSONObject().element("pending", true));
+    }
+
+    List<ModuleVersion> moduleVersions;
+    try {
+      moduleVersions = future.get();
+    } catch (InterruptedException | ExecutionException e) {
+      LOGGER.log(Level.WARNING, "Could not compute the module versions of " + this.project.getFullName(), e);
+      return HttpResponses.errorJSON("Could not compute the module versions: " + e.getMessage());
+    }
+
+    JSONObject root = null;
+    for (ModuleVersion moduleVersion : moduleVersions) {
+      if (moduleVersion.isRoot()) {
+        root = moduleVersion.toJSON();
+        break;
       }
+    }
 
-      if (StringUtils.isBlank(version) && StringUtils.isNotBlank(module.getVersion())) {
-        version = MavenVersionUtil.calculateReleaseVersion(module.getVersion());
+    if (StringUtils.isNotBlank(artifactId)) {
+      String filter = artifactId.trim();
+      List<ModuleVersion> filtered = Lists.newArrayList();
+      for (ModuleVersion moduleVersion : moduleVersions) {
+        if (StringUtils.contains(moduleVersion.getArtifactId(), filter)) {
+          filtered.add(moduleVersion);
+        }
       }
+      moduleVersions = filtered;
     }
 
-    if (StringUtils.isNotBlank(version)) {
-      return version;
+    int from = Math.max(0, Math.min(start, moduleVersions.size()));
+    int to = limit > 0 ? Math.min(moduleVersions.size(), from + limit) : moduleVersions.size();
+    JSONArray modules = new JSONArray();
+    for (ModuleVersion moduleVersion : moduleVersions.subList(from, to)) {
+      modules.add(moduleVersion.toJSON());
     }
-    return "NaN";
+    return HttpResponses.okJSON(new JSONObject().element("pending", false).element("total", moduleVersions.size())
+        .element("start", from).element("modules", modules).element("root", root));
   }
 
-  public String computeNextDevelopmentVersion() {
+  /**
+   * Starts recomputing the module versions in the background unless a computation is running already. The release
+   * page does this when it is opened; since the POMs are read from the agent, this requires the release permission.
+   */
+  @POST
+  public HttpResponse doRefreshModuleVersions() {
+    this.project.checkPermission(RELEASE_PERMISSION);
+    getModuleVersionsFuture(true);
+    return HttpResponses.okJSON(new JSONObject().element("pending", true));
+  }
+
+  /**
+   * Serves the scope of a partial release for the current workspace as JSON. The scope is computed in the background
+   * since it runs git on the agent. As long as the computation is running the response only signals {@code pending}
+   * and the client is expected to ask again.
+   *
+   * @param refresh whether to recompute the scope instead of serving the result of the last computation.
+   */
+  @POST
+  public HttpResponse doPartialReleasePlan(@QueryParameter boolean refresh) {
+    this.project.checkPermission(RELEASE_PERMISSION);
+
+    Future<PartialReleasePlan> future = getPartialReleasePlanFuture(refresh);
+    if (!future.isDone()) {
+      return HttpResponses.okJSON(new JSONObject().element("pending", true));
+    }
+    try {
+      return HttpResponses.okJSON(future.get().toJSON().element("pending", false));
+    } catch (InterruptedException | ExecutionException e) {
+      LOGGER.log(Level.WARNING, "Could not compute the partial release plan of " + this.project.getFullName(), e);
+      return HttpResponses.errorJSON("Could not compute the partial release plan: " + e.getMessage());
+    }
+  }
+
+  private synchronized Future<PartialReleasePlan> getPartialReleasePlanFuture(boolean refresh) {
+    if (this.partialReleasePlan == null || (refresh && this.partialReleasePlan.isDone())) {
+      this.partialReleasePlan = Computer.threadPoolForRemoting.submit(this::computePartialReleasePlan);
+    }
+    return this.partialReleasePlan;
+  }
+
+  private PartialReleasePlan computePartialReleasePlan() throws IOException, InterruptedException {
+    FilePath workspace = this.project.getSomeWorkspace();
+    if (workspace == null) {
+      return PartialReleasePlan.fullRelease(null, "The workspace of the project is not available.");
+    }
+    return PartialReleasePlan.compute(this.project, workspace, workspace.createLauncher(TaskListener.NULL),
+        TaskListener.NULL, this.tagNamePattern);
+  }
+
+  private synchronized Future<List<ModuleVersion>> getModuleVersionsFuture(boolean refresh) {
+    if (this.moduleVersions == null || (refresh && this.moduleVersions.isDone())) {
+      this.moduleVersions = Computer.threadPoolForRemoting.submit(this::getModuleVersions);
+    }
+    return this.moduleVersions;
+  }
+
+  private static ModulePlan getModulePlan(UnleashReleasePlanAction releasePlan, MavenModule module) {
+    return releasePlan != null ? releasePlan.getModulePlan(module) : null;
+  }
+
+  private Optional<String> parseVersion(MavenModule module) {
+    Optional<PomCoordinates> coordinates = MavenUtil.parseCoordinates(module, this.project);
+    if (coordinates.isPresent()) {
+      return Optional.fromNullable(coordinates.get().getEffectiveVersion());
+    }
+    return Optional.absent();
+  }
+
+  private String computeReleaseVersion(MavenModule module, String parsedVersion) {
     String version = null;
-    Optional<Model> model = MavenUtil.parseModel(this.project.getRootModule(), this.project);
-    if (model.isPresent()) {
-      Optional<String> parsedVersion = MavenUtil.parseVersion(model.get());
-      if (parsedVersion.isPresent()) {
-        version = MavenVersionUtil.calculateNextSnapshotVersion(parsedVersion.get(), this.versionUpgradeStrategy);
-      }
+    if (StringUtils.isNotBlank(parsedVersion)) {
+      version = MavenVersionUtil.calculateReleaseVersion(parsedVersion);
     }
 
-    if (StringUtils.isBlank(version)) {
-      MavenModule rootModule = this.project.getRootModule();
-      if (rootModule != null && StringUtils.isNotBlank(rootModule.getVersion())) {
-        version = MavenVersionUtil.calculateNextSnapshotVersion(rootModule.getVersion(), this.versionUpgradeStrategy);
-      }
+    if (StringUtils.isBlank(version) && module != null && StringUtils.isNotBlank(module.getVersion())) {
+      version = MavenVersionUtil.calculateReleaseVersion(module.getVersion());
     }
 
     if (StringUtils.isNotBlank(version)) {
@@ -208,27 +377,20 @@ public class UnleashAction implements PermalinkProjectAction {
     return "NaN";
   }
 
-  public String computeNextDevelopmentVersion(MavenModule module) {
+  private String computeNextDevelopmentVersion(MavenModule module, String parsedVersion) {
     String version = null;
-    if (module != null) {
-      Optional<Model> model = MavenUtil.parseModel(this.project.getRootModule(), this.project);
-      if (model.isPresent()) {
-        Optional<String> parsedVersion = MavenUtil.parseVersion(model.get());
-        if (parsedVersion.isPresent()) {
-          version = MavenVersionUtil.calculateNextSnapshotVersion(parsedVersion.get(), this.versionUpgradeStrategy);
-        }
-      }
+    if (StringUtils.isNotBlank(parsedVersion)) {
+      version = MavenVersionUtil.calculateNextSnapshotVersion(parsedVersion, this.versionUpgradeStrategy);
+    }
 
-      if (StringUtils.isBlank(version) && StringUtils.isNotBlank(module.getVersion())) {
-        version = MavenVersionUtil.calculateNextSnapshotVersion(module.getVersion(), this.versionUpgradeStrategy);
-      }
+    if (StringUtils.isBlank(version) && module != null && StringUtils.isNotBlank(module.getVersion())) {
+      version = MavenVersionUtil.calculateNextSnapshotVersion(module.getVersion(), this.versionUpgradeStrategy);
     }
 
     if (StringUtils.isNotBlank(version)) {
       return version;
     }
     return "NaN";
-
   }
 
   public boolean isUseGlobalVersion() {
@@ -302,8 +464,71 @@ public class UnleashAction implements PermalinkProjectAction {
     // verify permission
     this.project.checkPermission(RELEASE_PERMISSION);
 
-    RequestWrapper requestWrapper = new RequestWrapper(req);
+    UnleashArgumentsAction arguments = parseArguments(new RequestWrapper(req));
+    List<ParameterValue> params = parseParameters(req);
+
+    // an equivalent release that is still queued is returned instead of scheduling another one (see
+    // UnleashArgumentsAction#shouldSchedule)
+    Queue.ScheduleResult result = this.project.isBuildable()
+        ? Jenkins.get().getQueue().schedule2(this.project, 0,
+            Arrays.asList(new CauseAction(new UnleashCause()), new ParametersAction(params), arguments))
+        : Queue.ScheduleResult.refused();
+    if (result.isCreated()) {
+      resp.sendRedirect(req.getContextPath() + '/' + this.project.getUrl());
+    } else if (result.isAccepted()) {
+      resp.sendRedirect(req.getContextPath() + '/' + this.project.getUrl() + '/' + getUrlName() + "/queued?id="
+          + result.getItem().getId());
+    } else {
+      resp.sendRedirect(req.getContextPath() + '/' + this.project.getUrl() + '/' + getUrlName() + "/failed");
+    }
+  }
+
+  /**
+   * Shows the queued release build with the given id that an equivalent release was folded into.
+   */
+  @GET
+  public HttpResponse doQueued(@QueryParameter long id) {
+    this.project.checkPermission(Item.READ);
+    Queue.Item item = Jenkins.get().getQueue().getItem(id);
+    return HttpResponses.forwardToView(this, "queued.jelly").with("item",
+        item != null && item.task == this.project ? item : null);
+  }
+
+  /**
+   * Computes the plan of the release submitted with the form without scheduling a build. The plan is rendered as HTML
+   * or as JSON if the parameter {@code format=json} is passed.
+   */
+  @POST
+  public HttpResponse doDryRun(StaplerRequest2 req) throws ServletException {
+    this.project.checkPermission(RELEASE_PERMISSION);
+
+    UnleashMavenBuildWrapper wrapper = this.project.getBuildWrappersList().get(UnleashMavenBuildWrapper.class);
+    if (wrapper == null || this.project.getRootModule() == null) {
+      return HttpResponses.errorJSON("The project is not configured for releases with Unleash.");
+    }
 
+    UnleashArgumentsAction arguments = parseArguments(new RequestWrapper(req));
+    ParametersAction parameters = new ParametersAction(parseParameters(req));
+    List<ModuleVersion> moduleVersions;
+    if (arguments.useGlobalReleaseVersion()) {
+      moduleVersions = Lists.newArrayList();
+      for (MavenModule module : getAllMavenModules()) {
+        moduleVersions.add(new ModuleVersion(module, arguments.getGlobalReleaseVersion(),
+            arguments.getGlobalDevelopmentVersion()));
+      }
+    } else {
+      moduleVersions = getModuleVersions();
+    }
+
+    UnleashDryRun dryRun = new UnleashDryRun(this.project, wrapper, arguments, parameters, moduleVersions,
+        !this.project.hasPermission(Item.CONFIGURE));
+    if ("json".equals(req.getParameter("format"))) {
+      return HttpResponses.okJSON(dryRun.toJSON());
+    }
+    return HttpResponses.forwardToView(dryRun, "index.jelly");
+  }
+
+  private UnleashArgumentsAction parseArguments(RequestWrapper requestWrapper) {
     UnleashArgumentsAction arguments = new UnleashArgumentsAction();
     boolean globalVersions = requestWrapper.getBoolean("useGlobalVersion");
 
@@ -320,9 +545,14 @@ public class UnleashAction implements PermalinkProjectAction {
     arguments.setCommitBeforeTagging(requestWrapper.getBoolean("commitBeforeTagging"));
     arguments.setErrorLog(requestWrapper.getBoolean("errorLog"));
     arguments.setDebugLog(requestWrapper.getBoolean("debugLog"));
+    arguments.setDebugLogSidecar(requestWrapper.getBoolean("debugLogSidecar"));
     arguments.setTagNamePattern(requestWrapper.getString("tagNamePattern"));
     arguments.setScmMessagePrefix(requestWrapper.getString("scmMessagePrefix"));
+    arguments.setPartialRelease(requestWrapper.getBoolean("partialRelease"));
+    return arguments;
+  }
 
+  private List<ParameterValue> parseParameters(StaplerRequest2 req) throws ServletException {
     // get the normal job parameters (adapted from
     // hudson.model.ParametersDefinitionProperty._doBuild(StaplerRequest,
     // StaplerResponse))
@@ -344,12 +574,7 @@ public class UnleashAction implements PermalinkProjectAction {
         }
       }
     }
-
-    if (this.project.scheduleBuild(0, new UnleashCause(), new ParametersAction(params), arguments)) {
-      resp.sendRedirect(req.getContextPath() + '/' + this.project.getUrl());
-    } else {
-      resp.sendRedirect(req.getContextPath() + '/' + this.project.getUrl() + '/' + getUrlName() + "/failed");
-    }
+    return params;
   }
 
   public ParameterDefinition getParameterDefinition(String name) {
@@ -361,6 +586,51 @@ public class UnleashAction implements PermalinkProjectAction {
     return null;
   }
 
+  public static final class ModuleVersion {
+    private final String name;
+
+    private final String artifactId;
+
+    private final String releaseVersion;
+
+    private final String developmentVersion;
+
+    private final boolean root;
+
+    ModuleVersion(MavenModule module, String releaseVersion, String developmentVersion) {
+      this.name = module.getDisplayName();
+      this.artifactId = module.getModuleName().artifactId;
+      this.releaseVersion = releaseVersion;
+      this.developmentVersion = developmentVersion;
+      this.root = module == module.getParent().getRootModule();
+    }
+
+    public String getName() {
+      return this.name;
+    }
+
+    public String getArtifactId() {
+      return this.artifactId;
+    }
+
+    public String getReleaseVersion() {
+      return this.releaseVersion;
+    }
+
+    public String getDevelopmentVersion() {
+      return this.developmentVersion;
+    }
+
+    public boolean isRoot() {
+      return this.root;
+    }
+
+    JSONObject toJSON() {
+      return new JSONObject().element("name", this.name).element("artifactId", this.artifactId)
+          .element("releaseVersion", this.releaseVersion).element("developmentVersion", this.developmentVersion);
+    }
+  }
+
   static class RequestWrapper {
     private final StaplerRequest2 request;
 
@@ -23,13 +23,10 @@
  */
 package com.itemis.jenkins.plugins.unleash;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import com.google.common.base.Preconditions;
-import com.google.common.collect.Lists;
-
 import hudson.maven.MavenArgumentInterceptorAction;
 import hudson.maven.MavenModuleSetBuild;
 import hudson.util.ArgumentListBuilder;
@@ -44,8 +41,30 @@ public class UnleashArgumentInterceptorAction implements MavenArgumentIntercepto
   private static final Logger LOGGER = Logger.getLogger(UnleashArgumentInterceptorAction.class.getName());
   private transient String goalsAndOptions;
 
+  /**
+   * The modules of a partial release which are passed as {@code -pl <projects>} or {@code null} if the whole reactor is
+   * released.
+   */
+  private transient String projects;
+
+  /**
+   * The release arguments and hooks that are passed as separate, masked arguments or {@code null} if they are part of
+   * the goals and options.
+   */
+  private transient List<String> separateArguments;
+
   public UnleashArgumentInterceptorAction(String goalsAndOptions) {
+    this(goalsAndOptions, null);
+  }
+
+  public UnleashArgumentInterceptorAction(String goalsAndOptions, String projects) {
+    this(goalsAndOptions, projects, null);
+  }
+
+  public UnleashArgumentInterceptorAction(String goalsAndOptions, String projects, List<String> separateArguments) {
     this.goalsAndOptions = goalsAndOptions;
+    this.projects = projects;
+    this.separateArguments = separateArguments;
   }
 
   @Override
@@ -70,95 +89,109 @@ public class UnleashArgumentInterceptorAction implements MavenArgumentIntercepto
 
   @Override
   public ArgumentListBuilder intercept(ArgumentListBuilder mavenargs, MavenModuleSetBuild build) {
+    return intercept(mavenargs, build.getProject().isIncrementalBuild());
+  }
+
+  ArgumentListBuilder intercept(ArgumentListBuilder mavenargs, boolean incrementalBuild) {
     ArgumentListBuilder returnListBuilder;
-    List<String> argumentList = mavenargs.toList();
-    if (build.getProject().isIncrementalBuild() && containsJenkinsIncrementalBuildArguments(argumentList)) {
-      LOGGER.config(
-          "This Maven build seems to be configured as 'Incremental build'. This will be disabled, as always the full project will be released");
-      returnListBuilder = removeAllIncrementalBuildArguments(mavenargs.clone());
+    if (incrementalBuild) {
+      returnListBuilder = removeIncrementalBuildArguments(mavenargs);
     } else {
       returnListBuilder = mavenargs.clone();
     }
 
+    if (this.projects != null) {
+      // the partial release restricts the reactor itself, independent of the incremental build setting
+      returnListBuilder.add("-pl", this.projects);
+    }
+    if (this.separateArguments != null) {
+      // the arguments are handed to the Maven process as they are, without tokenizing, and are masked in the echoed
+      // command
+      for (String argument : this.separateArguments) {
+        returnListBuilder.add(argument, true);
+      }
+    }
     return returnListBuilder;
   }
 
-  private boolean containsJenkinsIncrementalBuildArguments(List<String> mavenargs) {
-    int amdIndex = mavenargs.indexOf("-amd");
-    int plIndex = mavenargs.indexOf("-pl");
-
-    boolean amdArgumentExists = amdIndex != -1;
-    boolean plArgumentExists = plIndex != -1;
-
-    if (amdArgumentExists && plArgumentExists) {
-      boolean amdAndPlArgumentAreInSupposedOrder = amdIndex == plIndex - 1;
-      // assuming, that the argument behind -pl is the list of projects, as added in {@link MavenModuleSetBuild}
-
-      return amdAndPlArgumentAreInSupposedOrder && thereIsAnArgumentBehinPlArgument(mavenargs, plIndex);
-    } else {
-      return false;
-
+  private ArgumentListBuilder removeIncrementalBuildArguments(ArgumentListBuilder mavenargs) {
+    // copy the arguments and the mask once and rebuild the list in a single pass, skipping the incremental build
+    // arguments added by MavenModuleSetBuild
+    List<String> arguments = mavenargs.toList();
+    boolean[] mask = mavenargs.toMaskArray();
+    if (arguments.size() != mask.length) {
+      throw new RuntimeException("could not intercept argument list: ArgumentList and Mask are out of sync ");
     }
-  }
 
-  private boolean thereIsAnArgumentBehinPlArgument(List<String> mavenargs, int plIndex) {
-    if (mavenargs.size() >= plIndex + 1) {
-      return mavenargs.get(plIndex + 1) != null;
+    ArgumentListBuilder returnListBuilder = new ArgumentListBuilder();
+    boolean removed = false;
+    int i = 0;
+    while (i < arguments.size()) {
+      int incrementalBuildArguments = countIncrementalBuildArgumentsAt(arguments, i);
+      if (incrementalBuildArguments > 0) {
+        if (!removed) {
+          LOGGER.config(
+              "This Maven build seems to be configured as 'Incremental build'. This will be disabled, as always the full project will be released");
+          removed = true;
+        }
+        if (LOGGER.isLoggable(Level.FINER)) {
+          LOGGER.finer(String.format("Removed the arguments '%s' from argument list",
+              String.join(" ", arguments.subList(i, i + incrementalBuildArguments))));
+        }
+        i += incrementalBuildArguments;
+      } else {
+        returnListBuilder.add(arguments.get(i), mask[i]);
+        i++;
+      }
     }
-    return false;
+    return returnListBuilder;
   }
 
-  private ArgumentListBuilder removeAllIncrementalBuildArguments(ArgumentListBuilder mavenargs) {
-
-    // remove the three elements which was added by MavenModuleSetBuild
-    // -amd
-    // -pl
-    // <list of modules>
-    LOGGER.finer("Start removing the arguments '-amd -pl <list of modules>' from argument list");
-
-    ArgumentListBuilder returnListBuilder = new ArgumentListBuilder();
-
-    int amdIndex = mavenargs.toList().indexOf("-amd");
-
-    ensureArgumentsAndMaskHaveSaveSize(mavenargs);
-
-    boolean[] maskArray = mavenargs.toMaskArray();
-    ArrayList<Boolean> maskList = Lists.newArrayList();
-    for (boolean b : maskArray) {
-      maskList.add(b);
+  /**
+   * Detects the arguments that restrict the build to the changed modules and their dependents, as added by
+   * MavenModuleSetBuild for incremental builds. The following shapes are recognized, with the short or long option
+   * names and with the module list as a separate or as an attached ({@code --projects=<modules>}) argument:
+   * <ul>
+   * <li>{@code -amd -pl <modules>}</li>
+   * <li>{@code -pl <modules> -amd}</li>
+   * </ul>
+   *
+   * @return the number of arguments starting at {@code index} that form such a shape or {@code 0} if there is none.
+   */
+  private static int countIncrementalBuildArgumentsAt(List<String> arguments, int index) {
+    String argument = arguments.get(index);
+    if (isAlsoMakeDependents(argument)) {
+      int projectsLength = getProjectsLength(arguments, index + 1);
+      return projectsLength > 0 ? 1 + projectsLength : 0;
     }
-
-    List<String> oldArgumentList = mavenargs.toList();
-
-    // as List.remove is shifting all elements, we can reuse the index
-    String removedAmd = oldArgumentList.remove(amdIndex);
-    Preconditions.checkArgument("-amd".equals(removedAmd));
-    maskList.remove(amdIndex);
-
-    String removedPl = oldArgumentList.remove(amdIndex);
-    Preconditions.checkArgument("-pl".equals(removedPl));
-    maskList.remove(amdIndex);
-
-    String removedModuleList = oldArgumentList.remove(amdIndex);
-    maskList.remove(amdIndex);
-    LOGGER.finer(String.format("Removed the arguments '-amd -pl %s' from argument list", removedModuleList));
-
-    // rebuild
-    for (int i = 0; i < oldArgumentList.size(); i++) {
-      returnListBuilder.add(oldArgumentList.get(i), maskList.get(i));
+    int projectsLength = getProjectsLength(arguments, index);
+    if (projectsLength > 0 && index + projectsLength < arguments.size()
+        && isAlsoMakeDependents(arguments.get(index + projectsLength))) {
+      return projectsLength + 1;
     }
+    return 0;
+  }
 
-    ensureArgumentsAndMaskHaveSaveSize(returnListBuilder);
-
-    LOGGER.fine(String.format("Rebuild maven argument list, old size=%s; new size=%s", oldArgumentList.size(),
-        returnListBuilder.toList().size()));
-
-    return returnListBuilder;
+  private static boolean isAlsoMakeDependents(String argument) {
+    return "-amd".equals(argument) || "--also-make-dependents".equals(argument);
   }
 
-  private void ensureArgumentsAndMaskHaveSaveSize(ArgumentListBuilder alb) {
-    if (alb.toList().size() != alb.toMaskArray().length) {
-      throw new RuntimeException("could not intercept argument list: ArgumentList and Mask are out of sync ");
+  /**
+   * @return the number of arguments of the project list option at {@code index} including the module list or
+   *         {@code 0} if there is no project list option with a module list.
+   */
+  private static int getProjectsLength(List<String> arguments, int index) {
+    if (index >= arguments.size()) {
+      return 0;
+    }
+    String argument = arguments.get(index);
+    if ("-pl".equals(argument) || "--projects".equals(argument)) {
+      // assuming, that the argument behind -pl is the list of projects, as added in {@link MavenModuleSetBuild}
+      return index + 1 < arguments.size() && arguments.get(index + 1) != null ? 2 : 0;
+    }
+    if (argument != null && argument.startsWith("--projects=") && argument.length() > "--projects=".length()) {
+      return 1;
     }
+    return 0;
   }
 }
@@ -23,7 +23,15 @@
  */
 package com.itemis.jenkins.plugins.unleash;
 
+import java.util.List;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import com.google.common.base.Objects;
+
 import hudson.model.Action;
+import hudson.model.Queue;
 
 /**
  * @author Stanley Hillner
@@ -31,7 +39,8 @@ import hudson.model.Action;
 // This class was developed based on org.jvnet.hudson.plugins.m2release.M2ReleaseArgumentsAction
 // The class still contains substantial parts of the original implementation
 // original authors: teilo
-public class UnleashArgumentsAction implements Action {
+@ExportedBean
+public class UnleashArgumentsAction implements Action, Queue.QueueAction {
   private String globalReleaseVersion;
 
   private String globalDevelopmentVersion;
@@ -46,10 +55,14 @@ public class UnleashArgumentsAction implements Action {
 
   private boolean debugLog;
 
+  private boolean debugLogSidecar;
+
   private String tagNamePattern;
 
   private String scmMessagePrefix;
 
+  private boolean partialRelease;
+
   @Override
   public String getIconFileName() {
     return null;
@@ -69,10 +82,12 @@ public class UnleashArgumentsAction implements Action {
     this.useGlobalReleaseVersion = useGlobalReleaseVersion;
   }
 
+  @Exported(name = "useGlobalReleaseVersion")
   public boolean useGlobalReleaseVersion() {
     return this.useGlobalReleaseVersion;
   }
 
+  @Exported
   public String getGlobalReleaseVersion() {
     return this.globalReleaseVersion;
   }
@@ -81,6 +96,7 @@ public class UnleashArgumentsAction implements Action {
     this.globalReleaseVersion = globalReleaseVersion;
   }
 
+  @Exported
   public String getGlobalDevelopmentVersion() {
     return this.globalDevelopmentVersion;
   }
@@ -89,6 +105,7 @@ public class UnleashArgumentsAction implements Action {
     this.globalDevelopmentVersion = globalDevelopmentVersion;
   }
 
+  @Exported(name = "allowLocalReleaseArtifacts")
   public boolean allowLocalReleaseArtifacts() {
     return this.allowLocalReleaseArtifacts;
   }
@@ -97,6 +114,7 @@ public class UnleashArgumentsAction implements Action {
     this.allowLocalReleaseArtifacts = allowLocalReleaseArtifacts;
   }
 
+  @Exported(name = "commitBeforeTagging")
   public boolean commitBeforeTagging() {
     return this.commitBeforeTagging;
   }
@@ -105,6 +123,7 @@ public class UnleashArgumentsAction implements Action {
     this.commitBeforeTagging = commitBeforeTagging;
   }
 
+  @Exported(name = "errorLog")
   public boolean errorLog() {
     return this.errorLog;
   }
@@ -113,6 +132,7 @@ public class UnleashArgumentsAction implements Action {
     this.errorLog = errorLog;
   }
 
+  @Exported(name = "debugLog")
   public boolean debugLog() {
     return this.debugLog;
   }
@@ -121,6 +141,19 @@ public class UnleashArgumentsAction implements Action {
     this.debugLog = debugLog;
   }
 
+  /**
+   * @return {@code true} if the debug log messages shall be captured in a compressed file instead of the build log.
+   */
+  @Exported(name = "debugLogSidecar")
+  public boolean debugLogSidecar() {
+    return this.debugLogSidecar;
+  }
+
+  public void setDebugLogSidecar(boolean debugLogSidecar) {
+    this.debugLogSidecar = debugLogSidecar;
+  }
+
+  @Exported
   public String getTagNamePattern() {
     return this.tagNamePattern;
   }
@@ -129,6 +162,7 @@ public class UnleashArgumentsAction implements Action {
     this.tagNamePattern = tagNamePattern;
   }
 
+  @Exported
   public String getScmMessagePrefix() {
     return this.scmMessagePrefix;
   }
@@ -137,4 +171,41 @@ public class UnleashArgumentsAction implements Action {
     this.scmMessagePrefix = scmMessagePrefix;
   }
 
+  @Exported(name = "partialRelease")
+  public boolean partialRelease() {
+    return this.partialRelease;
+  }
+
+  public void setPartialRelease(boolean partialRelease) {
+    this.partialRelease = partialRelease;
+  }
+
+  /**
+   * Folds a release into a queued one if both use equivalent arguments. Releases with different job parameters are not
+   * folded since the {@link hudson.model.ParametersAction} requests a new build then.
+   */
+  @Override
+  public boolean shouldSchedule(List<Action> actions) {
+    for (Action action : actions) {
+      if (action instanceof UnleashArgumentsAction other && isEquivalent(other)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return {@code true} if the other arguments would perform the same release.
+   */
+  public boolean isEquivalent(UnleashArgumentsAction other) {
+    return this.useGlobalReleaseVersion == other.useGlobalReleaseVersion
+        && this.allowLocalReleaseArtifacts == other.allowLocalReleaseArtifacts
+        && this.commitBeforeTagging == other.commitBeforeTagging && this.errorLog == other.errorLog
+        && this.debugLog == other.debugLog && this.debugLogSidecar == other.debugLogSidecar
+        && this.partialRelease == other.partialRelease
+        && Objects.equal(this.globalReleaseVersion, other.globalReleaseVersion)
+        && Objects.equal(this.globalDevelopmentVersion, other.globalDevelopmentVersion)
+        && Objects.equal(this.tagNamePattern, other.tagNamePattern)
+        && Objects.equal(this.scmMessagePrefix, other.scmMessagePrefix);
+  }
 }
@@ -23,6 +23,12 @@
  */
 package com.itemis.jenkins.plugins.unleash;
 
+import java.util.Collections;
+import java.util.Map;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
 import com.google.common.base.Strings;
 
 import hudson.model.BuildBadgeAction;
@@ -36,14 +42,21 @@ import jenkins.model.RunAction2;
 // This class was developed based on org.jvnet.hudson.plugins.m2release.M2ReleaseBadgeAction
 // The class still contains substantial parts of the original implementation
 // original authors: domi & teilo
+@ExportedBean
 public class UnleashBadgeAction implements BuildBadgeAction, RunAction2 {
   private Run<?, ?> run;
   private String version;
+  private Map<String, String> moduleVersions;
 
   public UnleashBadgeAction(String version) {
     this.version = version;
   }
 
+  public UnleashBadgeAction(String version, Map<String, String> moduleVersions) {
+    this.version = version;
+    this.moduleVersions = moduleVersions;
+  }
+
   @Override
   public String getIconFileName() {
     return null;
@@ -80,6 +93,7 @@ public class UnleashBadgeAction implements BuildBadgeAction, RunAction2 {
     return sb.toString();
   }
 
+  @Exported
   public boolean isSuccessfulBuild() {
     if (this.run != null) {
       Result result = this.run.getResult();
@@ -90,6 +104,7 @@ public class UnleashBadgeAction implements BuildBadgeAction, RunAction2 {
     return false;
   }
 
+  @Exported
   public boolean isFailedBuild() {
     if (this.run != null) {
       Result result = this.run.getResult();
@@ -100,6 +115,7 @@ public class UnleashBadgeAction implements BuildBadgeAction, RunAction2 {
     return false;
   }
 
+  @Exported
   public boolean isUnstableBuild() {
     if (this.run != null) {
       Result result = this.run.getResult();
@@ -114,6 +130,7 @@ public class UnleashBadgeAction implements BuildBadgeAction, RunAction2 {
     return this.run.isBuilding();
   }
 
+  @Exported
   public String getVersion() {
     if (!Strings.isNullOrEmpty(this.version)) {
       return this.version;
@@ -128,6 +145,14 @@ public class UnleashBadgeAction implements BuildBadgeAction, RunAction2 {
     return "Unknown Version";
   }
 
+  /**
+   * @return the release versions of the modules by their {@code groupId:artifactId}. Builds of older versions of the
+   *         plugin only carry the {@link #getVersion() version} of the release.
+   */
+  public Map<String, String> getModuleVersions() {
+    return this.moduleVersions != null ? Collections.unmodifiableMap(this.moduleVersions) : Collections.emptyMap();
+  }
+
   public void setVersion(String version) {
     if (!Strings.isNullOrEmpty(version)) {
       this.version = version;
@@ -0,0 +1,252 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.itemis.maven.plugins.unleash.util.VersionUpgradeStrategy;
+
+/**
+ * The immutable, precompiled part of the release command of a job. All options that only depend on the job
+ * configuration (goals, workflow, profiles, release arguments, hooks and the default tag name pattern and SCM message
+ * prefix) are rendered once, so that a release only has to append the options of its {@link UnleashArgumentsAction}.
+ * <br>
+ * Instances are created by the {@link UnleashMavenBuildWrapper} and discarded whenever its configuration changes.<br>
+ * <br>
+ * If the release arguments and the hooks are passed separately, they are not part of the command but kept as raw
+ * properties which are turned into separate Maven arguments per release (see
+ * {@link #createSeparateArguments(Function)}).
+ */
+public final class UnleashCommandTemplate {
+  static final String MASK = "****";
+
+  private final String staticPart;
+
+  /**
+   * The raw release arguments and hooks if they are passed separately from the command, otherwise {@code null}.
+   */
+  private final List<Map.Entry<String, String>> separateProperties;
+
+  private final String versionUpgradeStrategyOption;
+
+  private final String defaultTagNamePattern;
+
+  private final String defaultTagNamePatternOption;
+
+  private final String defaultScmMessagePrefix;
+
+  private final String defaultScmMessagePrefixOption;
+
+  private UnleashCommandTemplate(String staticPart, List<Map.Entry<String, String>> separateProperties,
+      VersionUpgradeStrategy versionUpgradeStrategy, String defaultTagNamePattern, String defaultScmMessagePrefix) {
+    this.staticPart = staticPart;
+    this.separateProperties = separateProperties;
+    this.versionUpgradeStrategyOption = " -Dunleash.versionUpgradeStrategy=" + versionUpgradeStrategy.name();
+    this.defaultTagNamePattern = defaultTagNamePattern;
+    this.defaultTagNamePatternOption = tagNamePatternOption(defaultTagNamePattern);
+    this.defaultScmMessagePrefix = defaultScmMessagePrefix;
+    this.defaultScmMessagePrefixOption = scmMessagePrefixOption(defaultScmMessagePrefix);
+  }
+
+  static UnleashCommandTemplate compile(String goals, String workflowPath, String profiles, String releaseArgs,
+      boolean useLogTimestamps, List<HookDescriptor> hooks, VersionUpgradeStrategy versionUpgradeStrategy,
+      String tagNamePattern, String scmMessagePrefix, boolean passSeparately) {
+    StringBuilder command = new StringBuilder(goals);
+    List<Map.Entry<String, String>> separateProperties = passSeparately ? Lists.newArrayList() : null;
+
+    if (StringUtils.isNotBlank(workflowPath)) {
+      // TODO handle absolute and relative paths!
+      command.append(" -Dworkflow=").append(workflowPath);
+    }
+
+    // appends the profiles to the Maven call
+    String listedProfiles = listProfiles(profiles);
+    if (!listedProfiles.isEmpty()) {
+      command.append(" -P ").append(listedProfiles);
+      command.append(" -Dunleash.profiles=").append(listedProfiles);
+    }
+
+    if (StringUtils.isNotBlank(releaseArgs)) {
+      if (separateProperties != null) {
+        separateProperties.add(Maps.immutableEntry("unleash.releaseArgs", releaseArgs.trim()));
+      } else {
+        command.append(" -Dunleash.releaseArgs=\"").append(releaseArgs.trim()).append("\"");
+      }
+    }
+    command.append(" -DenableLogTimestamps=").append(useLogTimestamps);
+
+    if (hooks != null) {
+      for (HookDescriptor hookData : hooks) {
+        if (StringUtils.isNotBlank(hookData.getName()) && StringUtils.isNotBlank(hookData.getData())) {
+          if (separateProperties != null) {
+            separateProperties.add(Maps.immutableEntry(hookData.getName(), hookData.getData()));
+            if (StringUtils.isNotBlank(hookData.getRollbackData())) {
+              separateProperties.add(Maps.immutableEntry(hookData.getName() + "-rollback", hookData.getRollbackData()));
+            }
+            continue;
+          }
+          command.append(" -D").append(hookData.getName()).append("=\"").append(hookData.getData()).append("\"");
+          if (StringUtils.isNotBlank(hookData.getRollbackData())) {
+            command.append(" -D").append(hookData.getName()).append("-rollback=\"").append(hookData.getRollbackData())
+                .append("\"");
+          }
+        }
+      }
+    }
+
+    return new UnleashCommandTemplate(command.toString(),
+        separateProperties != null ? ImmutableList.copyOf(separateProperties) : null, versionUpgradeStrategy,
+        tagNamePattern, scmMessagePrefix);
+  }
+
+  /**
+   * Joins the comma-separated profiles, trimming them and replacing a leading {@code -} by {@code !} in a single pass.
+   */
+  private static String listProfiles(String profiles) {
+    if (StringUtils.isBlank(profiles)) {
+      return "";
+    }
+    StringBuilder listed = new StringBuilder(profiles.length());
+    int start = 0;
+    while (start <= profiles.length()) {
+      int end = profiles.indexOf(',', start);
+      if (end < 0) {
+        end = profiles.length();
+      }
+      String profile = profiles.substring(start, end).trim();
+      if (!profile.isEmpty()) {
+        if (listed.length() > 0) {
+          listed.append(',');
+        }
+        if (profile.charAt(0) == '-') {
+          listed.append('!').append(profile, 1, profile.length());
+        } else {
+          listed.append(profile);
+        }
+      }
+      start = end + 1;
+    }
+    return listed.toString();
+  }
+
+  private static String tagNamePatternOption(String tagNamePattern) {
+    if (StringUtils.isBlank(tagNamePattern)) {
+      return "";
+    }
+    return " -Dunleash.tagNamePattern=\"" + tagNamePattern.trim() + "\"";
+  }
+
+  private static String scmMessagePrefixOption(String scmMessagePrefix) {
+    if (StringUtils.isBlank(scmMessagePrefix)) {
+      return "";
+    }
+    return " -Dunleash.scmMessagePrefix=\"" + scmMessagePrefix.trim() + "\"";
+  }
+
+  /**
+   * @return the options that only depend on the job configuration.
+   */
+  public String getStaticPart() {
+    return this.staticPart;
+  }
+
+  /**
+   * Creates the release arguments and the hooks as separate Maven arguments of the form {@code -D<name>=<value>}. Each
+   * property is a single argument, so its value needs no quoting or escaping. The references to build parameters are
+   * expanded in the raw names and values.
+   *
+   * @param expander expands the references to build parameters.
+   * @return the arguments or {@code null} if the release arguments and the hooks are part of the command.
+   */
+  public List<String> createSeparateArguments(Function<String, String> expander) {
+    if (this.separateProperties == null) {
+      return null;
+    }
+    List<String> arguments = Lists.newArrayListWithCapacity(this.separateProperties.size());
+    for (Map.Entry<String, String> property : this.separateProperties) {
+      arguments.add("-D" + expander.apply(property.getKey()) + '=' + expander.apply(property.getValue()));
+    }
+    return arguments;
+  }
+
+  /**
+   * Creates the separate arguments like {@link #createSeparateArguments(Function)} but with masked values.
+   *
+   * @param expander expands the references to build parameters in the names.
+   * @return the masked arguments or {@code null} if the release arguments and the hooks are part of the command.
+   */
+  public List<String> createMaskedSeparateArguments(Function<String, String> expander) {
+    if (this.separateProperties == null) {
+      return null;
+    }
+    List<String> arguments = Lists.newArrayListWithCapacity(this.separateProperties.size());
+    for (Map.Entry<String, String> property : this.separateProperties) {
+      arguments.add("-D" + expander.apply(property.getKey()) + '=' + MASK);
+    }
+    return arguments;
+  }
+
+  /**
+   * Creates the release command for a single release by merging the options of the release arguments into the
+   * precompiled template. The returned builder can be extended by further per-run options.
+   */
+  public StringBuilder createCommand(UnleashArgumentsAction arguments) {
+    StringBuilder command = new StringBuilder(this.staticPart.length() + 512).append(this.staticPart);
+
+    String tagNamePatternOption = this.defaultTagNamePatternOption;
+    String scmMessagePrefixOption = this.defaultScmMessagePrefixOption;
+    if (arguments != null) {
+      if (arguments.useGlobalReleaseVersion()) {
+        command.append(" -Dunleash.releaseVersion=").append(arguments.getGlobalReleaseVersion());
+        command.append(" -Dunleash.developmentVersion=").append(arguments.getGlobalDevelopmentVersion());
+      } else {
+        command.append(this.versionUpgradeStrategyOption);
+      }
+      command.append(" -Dunleash.allowLocalReleaseArtifacts=").append(arguments.allowLocalReleaseArtifacts());
+      command.append(" -Dunleash.commitBeforeTagging=").append(arguments.commitBeforeTagging());
+      if (arguments.errorLog()) {
+        command.append(" -e");
+      }
+      if (arguments.debugLog()) {
+        command.append(" -X");
+      }
+
+      if (!StringUtils.equals(arguments.getTagNamePattern(), this.defaultTagNamePattern)) {
+        tagNamePatternOption = tagNamePatternOption(arguments.getTagNamePattern());
+      }
+      if (!StringUtils.equals(arguments.getScmMessagePrefix(), this.defaultScmMessagePrefix)) {
+        scmMessagePrefixOption = scmMessagePrefixOption(arguments.getScmMessagePrefix());
+      }
+    }
+    command.append(tagNamePatternOption).append(scmMessagePrefixOption);
+    return command;
+  }
+}
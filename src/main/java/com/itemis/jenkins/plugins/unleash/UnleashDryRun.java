@@ -0,0 +1,195 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.google.common.collect.Lists;
+import com.itemis.jenkins.plugins.unleash.UnleashAction.ModuleVersion;
+
+import hudson.maven.MavenModuleSet;
+import hudson.model.ParametersAction;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+/**
+ * The plan of a release as it would be executed with the given arguments, computed without scheduling a build. The
+ * command is assembled like in {@link UnleashMavenBuildWrapper#setUp}, except for the options that depend on the agent
+ * (automatic thread sizing, SCM credentials and the scope of a partial release) which are only described.
+ */
+public final class UnleashDryRun {
+  private final MavenModuleSet project;
+
+  private final UnleashArgumentsAction arguments;
+
+  private final List<ModuleVersion> moduleVersions;
+
+  private final String tagName;
+
+  private final List<HookDescriptor> hooks;
+
+  private final String command;
+
+  private final String separateArguments;
+
+  private final String releaseThreads;
+
+  private final String credentialsId;
+
+  private final boolean masked;
+
+  /**
+   * @param masked whether the release arguments and the hook data are masked since the user isn't allowed to see the
+   *          job configuration.
+   */
+  UnleashDryRun(MavenModuleSet project, UnleashMavenBuildWrapper wrapper, UnleashArgumentsAction arguments,
+      ParametersAction parameters, List<ModuleVersion> moduleVersions, boolean masked) {
+    this.project = project;
+    this.arguments = arguments;
+    this.moduleVersions = moduleVersions;
+    this.tagName = PartialReleasePlan.resolveTagName(arguments.getTagNamePattern(),
+        project.getRootModule().getModuleName(), arguments.getGlobalReleaseVersion());
+    this.releaseThreads = describeReleaseThreads(wrapper);
+    this.credentialsId = wrapper.getCredentialsId();
+    this.masked = masked;
+
+    // masked release arguments and hooks are kept out of the command
+    UnleashCommandTemplate template = masked ? wrapper.compileCommandTemplate(true) : wrapper.getCommandTemplate();
+    this.command = UnleashMavenBuildWrapper.replaceJobParameterReferences(parameters,
+        template.createCommand(arguments));
+    Function<String, String> expander = value -> UnleashMavenBuildWrapper.replaceJobParameterReferences(parameters,
+        value);
+    List<String> separateArguments = masked ? template.createMaskedSeparateArguments(expander)
+        : template.createSeparateArguments(expander);
+    this.separateArguments = separateArguments != null ? String.join("\n", separateArguments) : null;
+
+    List<HookDescriptor> hooks = Lists.newArrayList();
+    if (wrapper.getHooks() != null) {
+      for (HookDescriptor hook : wrapper.getHooks()) {
+        if (StringUtils.isNotBlank(hook.getName()) && StringUtils.isNotBlank(hook.getData())) {
+          String rollbackData = StringUtils.isNotBlank(hook.getRollbackData()) ? hook.getRollbackData() : null;
+          if (masked) {
+            hooks.add(new HookDescriptor(hook.getName(), UnleashCommandTemplate.MASK,
+                rollbackData != null ? UnleashCommandTemplate.MASK : null));
+          } else {
+            hooks.add(new HookDescriptor(hook.getName(), expander.apply(hook.getData()),
+                rollbackData != null ? expander.apply(rollbackData) : null));
+          }
+        }
+      }
+    }
+    this.hooks = hooks;
+  }
+
+  public MavenModuleSet getProject() {
+    return this.project;
+  }
+
+  public UnleashArgumentsAction getArguments() {
+    return this.arguments;
+  }
+
+  public List<ModuleVersion> getModuleVersions() {
+    return Collections.unmodifiableList(this.moduleVersions);
+  }
+
+  /**
+   * @return the name of the release tag or {@code null} if the pattern contains expressions that are only known
+   *         during the release.
+   */
+  public String getTagName() {
+    return this.tagName;
+  }
+
+  public List<HookDescriptor> getHooks() {
+    return Collections.unmodifiableList(this.hooks);
+  }
+
+  public String getCommand() {
+    return this.command;
+  }
+
+  /**
+   * @return the release arguments and hooks that are passed separately from the command, one per line, or
+   *         {@code null} if they are part of the command.
+   */
+  public String getSeparateArguments() {
+    return this.separateArguments;
+  }
+
+  /**
+   * @return how the number of release threads is determined and passed to the release build or {@code null} if the
+   *         release builds serially.
+   */
+  public String getReleaseThreads() {
+    return this.releaseThreads;
+  }
+
+  public String getCredentialsId() {
+    return this.credentialsId;
+  }
+
+  public boolean isMasked() {
+    return this.masked;
+  }
+
+  private static String describeReleaseThreads(UnleashMavenBuildWrapper wrapper) {
+    String setting = wrapper.getEffectiveReleaseThreadsSetting();
+    if (setting.isEmpty() || UnleashMavenBuildWrapper.DescriptorImpl.SERIAL_RELEASE_THREADS.equals(setting)) {
+      return null;
+    }
+    if (UnleashMavenBuildWrapper.DescriptorImpl.AUTO_RELEASE_THREADS.equalsIgnoreCase(setting)) {
+      if (wrapper.hasCustomWorkflowOrHooks()) {
+        return "serial, automatically sized threads are disabled for custom workflows and hooks";
+      }
+      return "sized on the agent from its cores and the reactor width, passed as "
+          + UnleashMavenBuildWrapper.ENV_VAR_MAVEN_ARGS + "=-T <threads>";
+    }
+    return setting + ", passed as " + UnleashMavenBuildWrapper.ENV_VAR_MAVEN_ARGS + "=-T " + setting;
+  }
+
+  JSONObject toJSON() {
+    JSONArray modules = new JSONArray();
+    for (ModuleVersion moduleVersion : this.moduleVersions) {
+      modules.add(moduleVersion.toJSON());
+    }
+    JSONArray hooks = new JSONArray();
+    for (HookDescriptor hook : this.hooks) {
+      hooks.add(new JSONObject().element("name", hook.getName()).element("data", hook.getData())
+          .element("rollbackData", hook.getRollbackData()));
+    }
+    return new JSONObject().element("releaseVersion", this.arguments.getGlobalReleaseVersion())
+        .element("developmentVersion", this.arguments.getGlobalDevelopmentVersion())
+        .element("useGlobalVersion", this.arguments.useGlobalReleaseVersion()).element("modules", modules)
+        .element("tagNamePattern", this.arguments.getTagNamePattern()).element("tagName", this.tagName)
+        .element("scmMessagePrefix", this.arguments.getScmMessagePrefix()).element("hooks", hooks)
+        .element("command", this.command).element("separateArguments", this.separateArguments)
+        .element("releaseThreads", this.releaseThreads).element("partialRelease", this.arguments.partialRelease())
+        .element("credentialsId", this.credentialsId).element("masked", this.masked);
+  }
+}
@@ -28,11 +28,12 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang.StringUtils;
-import org.apache.maven.model.Model;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest2;
 import org.kohsuke.stapler.verb.POST;
@@ -45,21 +46,26 @@ import com.cloudbees.plugins.credentials.common.StandardListBoxModel;
 import com.cloudbees.plugins.credentials.common.StandardUsernameCredentials;
 import com.cloudbees.plugins.credentials.common.StandardUsernamePasswordCredentials;
 import com.cloudbees.plugins.credentials.domains.URIRequirementBuilder;
-import com.google.common.base.Joiner;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Optional;
-import com.google.common.base.Splitter;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.itemis.jenkins.plugins.unleash.train.ReleaseTrainVersionsAction;
 import com.itemis.jenkins.plugins.unleash.util.MavenUtil;
+import com.itemis.jenkins.plugins.unleash.util.ParameterExpander;
+import com.itemis.jenkins.plugins.unleash.util.PomCoordinates;
 import com.itemis.maven.plugins.unleash.util.MavenVersionUtil;
 import com.itemis.maven.plugins.unleash.util.VersionUpgradeStrategy;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.AbortException;
 import hudson.Extension;
+import hudson.FilePath;
 import hudson.Launcher;
 import hudson.maven.AbstractMavenProject;
+import hudson.maven.MavenModule;
 import hudson.maven.MavenModuleSet;
+import hudson.maven.MavenModuleSetBuild;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.model.Action;
@@ -67,15 +73,15 @@ import hudson.model.BuildListener;
 import hudson.model.Item;
 import hudson.model.ParameterValue;
 import hudson.model.ParametersAction;
-import hudson.model.Result;
-import hudson.model.Run;
 import hudson.model.queue.Tasks;
+import hudson.remoting.VirtualChannel;
 import hudson.security.ACL;
 import hudson.tasks.BuildWrapper;
 import hudson.tasks.BuildWrapperDescriptor;
+import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
-import hudson.util.RunList;
 import hudson.util.Secret;
+import jenkins.security.MasterToSlaveCallable;
 import net.sf.json.JSONObject;
 
 /**
@@ -93,6 +99,13 @@ public class UnleashMavenBuildWrapper extends BuildWrapper {
 
   private static String ENV_VAR_SCM_SSH_PRIVATE_KEY = "UNLEASH_SCM_SSH_PRIVATE_KEY";
 
+  /**
+   * The arguments that the {@code mvn} script of Maven 3.9 and newer prepends to the command line. The release build
+   * is forked by the unleash-maven-plugin with the environment of the build, whereas the Maven build of the job is
+   * launched without the script and ignores the variable.
+   */
+  static final String ENV_VAR_MAVEN_ARGS = "MAVEN_ARGS";
+
   private String goals = DescriptorImpl.DEFAULT_GOALS;
 
   private String profiles = DescriptorImpl.DEFAULT_PROFILES;
@@ -121,6 +134,26 @@ public class UnleashMavenBuildWrapper extends BuildWrapper {
 
   private VersionUpgradeStrategy versionUpgradeStrategy = DescriptorImpl.DEFAULT_VERSION_UPGRADE_STRATEGY;
 
+  private boolean passArgumentsSeparately = DescriptorImpl.DEFAULT_PASS_ARGUMENTS_SEPARATELY;
+
+  /**
+   * @deprecated replaced by {@link #passArgumentsSeparately}, only read from existing job configurations.
+   */
+  @Deprecated
+  private transient Boolean useArgumentsFile;
+
+  private String releaseThreads = DescriptorImpl.DEFAULT_RELEASE_THREADS;
+
+  private boolean preflightChecks = DescriptorImpl.DEFAULT_PREFLIGHT_CHECKS;
+
+  private String releaseResourceKey = DescriptorImpl.DEFAULT_RELEASE_RESOURCE_KEY;
+
+  /**
+   * The release command compiled from the configuration, {@code null} if it needs to be (re-)compiled. Saving the job
+   * configuration creates a new wrapper instance, the setters reset the template.
+   */
+  private transient volatile UnleashCommandTemplate commandTemplate;
+
   @DataBoundConstructor
   public UnleashMavenBuildWrapper(String goals, String profiles, String releaseArgs, boolean useLogTimestamps,
       String tagNamePattern, String scmMessagePrefix, boolean preselectUseGlobalVersion, List<HookDescriptor> hooks,
@@ -143,8 +176,17 @@ public class UnleashMavenBuildWrapper extends BuildWrapper {
     this.versionUpgradeStrategy = MoreObjects.firstNonNull(versionUpgradeStrategy, VersionUpgradeStrategy.DEFAULT);
   }
 
+  protected Object readResolve() {
+    if (this.useArgumentsFile != null) {
+      this.passArgumentsSeparately = this.useArgumentsFile;
+      this.useArgumentsFile = null;
+    }
+    return this;
+  }
+
   @Override
-  public Environment setUp(AbstractBuild build, Launcher launcher, BuildListener listener) {
+  public Environment setUp(AbstractBuild build, Launcher launcher, BuildListener listener)
+      throws IOException, InterruptedException {
     if (!isReleaseBuild(build)) {
       return new Environment() {
         @Override
@@ -154,98 +196,227 @@ public class UnleashMavenBuildWrapper extends BuildWrapper {
     }
 
     UnleashArgumentsAction arguments = build.getAction(UnleashArgumentsAction.class);
-    StringBuilder command = new StringBuilder(getGoals());
+    StringBuilder command = getCommandTemplate().createCommand(arguments);
+    // the job build only runs the unleash goal, the modules are built by the release build forked by the plugin
+    String threads = getEffectiveReleaseThreads(build, launcher, listener);
+    if (threads != null) {
+      listener.getLogger().println("[unleash] Passing -T " + threads + " to the release build via the "
+          + ENV_VAR_MAVEN_ARGS + " environment variable (requires Maven 3.9 or newer)");
+    }
+    String releaseVersion = arguments != null ? arguments.getGlobalReleaseVersion() : null;
 
-    if (StringUtils.isNotBlank(this.workflowPath)) {
-      // TODO handle absolute and relative paths!
-      command.append(" -Dworkflow=").append(this.workflowPath);
-    }
-
-    // appends the profiles to the Maven call
-    if (StringUtils.isNotBlank(getProfiles())) {
-      Iterable<String> split = Splitter.on(',').split(getProfiles());
-      List<String> profiles = Lists.newArrayList();
-      for (String profile : split) {
-        if (StringUtils.isNotBlank(profile)) {
-          profile = profile.trim();
-          if (StringUtils.startsWith(profile, "-")) {
-            profile = StringUtils.replaceOnce(profile, "-", "!");
-          }
-          profiles.add(profile);
+    final Map<String, String> scmEnv = updateCommandWithScmCredentials(build, command);
+    ParametersAction parameters = build.getAction(ParametersAction.class);
+    String expandedCommand = replaceJobParameterReferences(parameters, command);
+    // the raw values are expanded, the arguments don't need any escaping
+    List<String> separateArguments = getCommandTemplate()
+        .createSeparateArguments(value -> replaceJobParameterReferences(parameters, value));
+    if (separateArguments != null && !separateArguments.isEmpty()) {
+      listener.getLogger().println("[unleash] Passing " + separateArguments.size()
+          + " release arguments and hooks as separate, masked Maven arguments");
+    }
+
+    if (releaseVersion == null) {
+      MavenModuleSet project = (MavenModuleSet) build.getProject();
+      UnleashReleasePlanAction releasePlan = UnleashReleasePlanListener.getLastReleasePlan(project);
+      if (releasePlan != null) {
+        UnleashReleasePlanAction.ModulePlan rootPlan = releasePlan.getModulePlan(project.getRootModule());
+        if (rootPlan != null) {
+          releaseVersion = rootPlan.getReleaseVersion();
         }
       }
-      if (!profiles.isEmpty()) {
-        String listedProfiles = Joiner.on(',').join(profiles);
-        command.append(" -P ").append(listedProfiles);
-        command.append(" -Dunleash.profiles=").append(listedProfiles);
+    }
+    if (releaseVersion == null) {
+      MavenModuleSet project = (MavenModuleSet) build.getProject();
+      String version = null;
+      Optional<PomCoordinates> coordinates = MavenUtil.parseCoordinates(project.getRootModule(), project);
+      if (coordinates.isPresent()) {
+        version = coordinates.get().getEffectiveVersion();
+      }
+      if (StringUtils.isBlank(version)) {
+        version = project.getRootModule().getVersion();
+      }
+      releaseVersion = MavenVersionUtil.calculateReleaseVersion(version);
+    }
+    ReleaseTrainVersionsAction trainVersions = build.getAction(ReleaseTrainVersionsAction.class);
+    if (trainVersions != null && !trainVersions.getVersions().isEmpty()) {
+      updateDependencyVersions(build, listener, trainVersions);
+    }
+    if (this.preflightChecks) {
+      runPreflightChecks(build, launcher, listener, arguments, releaseVersion);
+    }
+
+    PartialReleasePlan partialReleasePlan = null;
+    if (arguments != null && arguments.partialRelease()) {
+      partialReleasePlan = getPartialReleasePlan(build, launcher, listener);
+    }
+    build.addAction(new UnleashArgumentInterceptorAction(expandedCommand,
+        partialReleasePlan != null ? partialReleasePlan.getProjects() : null, separateArguments));
+    build.addAction(new UnleashBadgeAction(releaseVersion,
+        getModuleReleaseVersions(build, arguments, partialReleasePlan)));
+
+    return new UnleashEnvironment(scmEnv, threads);
+  }
+
+  /**
+   * @return the release versions of all released modules by their {@code groupId:artifactId}. The versions are
+   *         calculated from the POMs in the workspace of the release build the same way the release does.
+   */
+  private static Map<String, String> getModuleReleaseVersions(@SuppressWarnings("rawtypes") AbstractBuild build,
+      UnleashArgumentsAction arguments, PartialReleasePlan partialReleasePlan) {
+    MavenModuleSet project = (MavenModuleSet) build.getProject();
+    boolean globalVersion = arguments != null && arguments.useGlobalReleaseVersion()
+        && StringUtils.isNotBlank(arguments.getGlobalReleaseVersion());
+    Collection<MavenModule> modules = partialReleasePlan != null ? partialReleasePlan.getReleasedModules()
+        : project.getModules();
+    Map<String, String> versions = Maps.newLinkedHashMap();
+    for (Map.Entry<MavenModule, PomCoordinates> entry : MavenUtil
+        .parseCoordinates(modules, project, build.getWorkspace()).entrySet()) {
+      String version = entry.getValue().getEffectiveVersion();
+      if (StringUtils.isNotBlank(version)) {
+        versions.put(entry.getKey().getModuleName().toString(),
+            globalVersion ? arguments.getGlobalReleaseVersion() : MavenVersionUtil.calculateReleaseVersion(version));
+      }
+    }
+    return versions;
+  }
+
+  /**
+   * Updates the dependencies on artifacts released by upstream jobs of a release train to the released versions.
+   */
+  private void updateDependencyVersions(@SuppressWarnings("rawtypes") AbstractBuild build, BuildListener listener,
+      ReleaseTrainVersionsAction trainVersions) throws IOException, InterruptedException {
+    FilePath workspace = build.getWorkspace();
+    if (workspace == null) {
+      throw new AbortException("The workspace of the release build is not available.");
+    }
+    MavenModuleSet project = (MavenModuleSet) build.getProject();
+    List<String> pathsToPoms = Lists.newArrayList();
+    for (MavenModule module : project.getModules()) {
+      pathsToPoms.add(MavenUtil.getPathToPom(module, project));
+    }
+    for (String pathToPom : ReleaseTrainVersionsAction.updateDependencyVersions(workspace, pathsToPoms,
+        trainVersions.getVersions())) {
+      listener.getLogger().println("[unleash] Updated the dependencies released by the release train in " + pathToPom);
+    }
+  }
+
+  /**
+   * @return the value of the {@code -T} option for the release or {@code null} if the release shall run serially.
+   */
+  private String getEffectiveReleaseThreads(@SuppressWarnings("rawtypes") AbstractBuild build, Launcher launcher,
+      BuildListener listener) throws IOException, InterruptedException {
+    String setting = getEffectiveReleaseThreadsSetting();
+    if (setting.isEmpty() || DescriptorImpl.SERIAL_RELEASE_THREADS.equals(setting)) {
+      return null;
+    }
+    if (!DescriptorImpl.AUTO_RELEASE_THREADS.equalsIgnoreCase(setting)) {
+      if (!DescriptorImpl.isValidReleaseThreads(setting)) {
+        throw new AbortException("Invalid number of release threads: " + setting);
       }
+      return setting;
+    }
+    if (hasCustomWorkflowOrHooks()) {
+      listener.getLogger().println("[unleash] Building serially since automatically sized release threads are "
+          + "disabled for custom workflows and hooks which might not be thread-safe");
+      return null;
+    }
+
+    int cores = 1;
+    VirtualChannel channel = launcher.getChannel();
+    if (channel != null) {
+      cores = channel.call(new AvailableProcessors());
     }
+    int width = MavenUtil.getReactorWidth((MavenModuleSet) build.getProject());
+    int threads = Math.min(cores, width);
+    listener.getLogger().println("[unleash] Sizing the release threads automatically: " + cores
+        + " cores, reactor width " + width + " -> " + (threads > 1 ? threads + " threads" : "serial build"));
+    return threads > 1 ? String.valueOf(threads) : null;
+  }
 
-    if (StringUtils.isNotBlank(getReleaseArgs())) {
-      command.append(" -Dunleash.releaseArgs=\"").append(getReleaseArgs().trim()).append("\"");
+  /**
+   * @return the thread setting of the job or the global one if the job doesn't configure it, may be empty.
+   */
+  String getEffectiveReleaseThreadsSetting() {
+    String setting = StringUtils.trimToEmpty(getReleaseThreads());
+    if (setting.isEmpty()) {
+      setting = StringUtils.trimToEmpty(((DescriptorImpl) getDescriptor()).getReleaseThreads());
     }
-    command.append(" -DenableLogTimestamps=").append(isUseLogTimestamps());
+    return setting;
+  }
 
+  /**
+   * @return {@code true} if the release runs a custom workflow or hooks whose thread-safety is unknown.
+   */
+  boolean hasCustomWorkflowOrHooks() {
+    if (StringUtils.isNotBlank(this.workflowPath)) {
+      return true;
+    }
     if (this.hooks != null) {
-      for (HookDescriptor hookData : this.hooks) {
-        if (StringUtils.isNotBlank(hookData.getName()) && StringUtils.isNotBlank(hookData.getData())) {
-          command.append(" -D").append(hookData.getName()).append("=\"").append(hookData.getData()).append("\"");
-          if (StringUtils.isNotBlank(hookData.getRollbackData())) {
-            command.append(" -D").append(hookData.getName()).append("-rollback=\"").append(hookData.getRollbackData())
-                .append("\"");
-          }
+      for (HookDescriptor hook : this.hooks) {
+        if (StringUtils.isNotBlank(hook.getName()) && StringUtils.isNotBlank(hook.getData())) {
+          return true;
         }
       }
     }
+    return false;
+  }
 
-    String tagNamePattern = getTagNamePattern();
-    String scmMessagePrefix = getScmMessagePrefix();
-    String releaseVersion = null;
-    if (arguments != null) {
-      tagNamePattern = arguments.getTagNamePattern();
-      scmMessagePrefix = arguments.getScmMessagePrefix();
-      releaseVersion = arguments.getGlobalReleaseVersion();
-      if (arguments.useGlobalReleaseVersion()) {
-        command.append(" -Dunleash.releaseVersion=").append(releaseVersion);
-        command.append(" -Dunleash.developmentVersion=").append(arguments.getGlobalDevelopmentVersion());
-      } else {
-        command.append(" -Dunleash.versionUpgradeStrategy=").append(getVersionUpgradeStrategy().name());
-      }
-      command.append(" -Dunleash.allowLocalReleaseArtifacts=").append(arguments.allowLocalReleaseArtifacts());
-      command.append(" -Dunleash.commitBeforeTagging=").append(arguments.commitBeforeTagging());
-      if (arguments.errorLog()) {
-        command.append(" -e");
-      }
-      if (arguments.debugLog()) {
-        command.append(" -X");
-      }
-    }
-    if (StringUtils.isNotBlank(tagNamePattern)) {
-      command.append(" -Dunleash.tagNamePattern=\"").append(tagNamePattern.trim()).append("\"");
+  private void runPreflightChecks(@SuppressWarnings("rawtypes") AbstractBuild build, Launcher launcher,
+      BuildListener listener, UnleashArgumentsAction arguments, String releaseVersion)
+      throws IOException, InterruptedException {
+    MavenModuleSet project = (MavenModuleSet) build.getProject();
+    FilePath workspace = build.getWorkspace();
+    if (workspace == null) {
+      throw new AbortException("The workspace of the release build is not available.");
     }
-    if (StringUtils.isNotBlank(scmMessagePrefix)) {
-      command.append(" -Dunleash.scmMessagePrefix=\"").append(scmMessagePrefix.trim()).append("\"");
+    FilePath localRepository = null;
+    if (build instanceof MavenModuleSetBuild mavenBuild && project.getLocalRepository() != null) {
+      localRepository = project.getLocalRepository().locate(mavenBuild);
     }
+    String globalReleaseVersion = arguments != null && arguments.useGlobalReleaseVersion()
+        ? arguments.getGlobalReleaseVersion()
+        : null;
+    String tagNamePattern = arguments != null ? arguments.getTagNamePattern() : getTagNamePattern();
+    boolean allowLocalReleaseArtifacts = arguments != null && arguments.allowLocalReleaseArtifacts();
+    UnleashPreflightCheck.check(project, workspace, launcher, listener, globalReleaseVersion, releaseVersion,
+        tagNamePattern, localRepository, allowLocalReleaseArtifacts);
+  }
 
-    final Map<String, String> scmEnv = updateCommandWithScmCredentials(build, command);
-    replaceJobParameterReferences(build, command);
+  /**
+   * @return the modules to release if only a part of the reactor is released or {@code null} for a full release.
+   */
+  private PartialReleasePlan getPartialReleasePlan(@SuppressWarnings("rawtypes") AbstractBuild build,
+      Launcher launcher, BuildListener listener) throws IOException, InterruptedException {
+    PartialReleasePlan plan = PartialReleasePlan.compute((MavenModuleSet) build.getProject(), build.getWorkspace(),
+        launcher, listener, getTagNamePattern());
+    if (!plan.isPartial()) {
+      listener.getLogger().println("[unleash] Releasing all modules: " + plan.getFullReleaseReason());
+      return null;
+    }
+    listener.getLogger().println("[unleash] Releasing the modules changed since the tag '" + plan.getBaseTag()
+        + "', their dependents and their parents (" + plan.getReleasedModules().size() + " modules): "
+        + plan.getProjects());
+    return plan;
+  }
 
-    if (releaseVersion == null) {
-      MavenModuleSet project = (MavenModuleSet) build.getProject();
-      String version = null;
-      Optional<Model> model = MavenUtil.parseModel(project.getRootModule(), project);
-      if (model.isPresent()) {
-        version = MavenUtil.parseVersion(model.get()).orNull();
-      }
-      if (StringUtils.isBlank(version)) {
-        version = project.getRootModule().getVersion();
-      }
-      releaseVersion = MavenVersionUtil.calculateReleaseVersion(version);
+  UnleashCommandTemplate getCommandTemplate() {
+    UnleashCommandTemplate template = this.commandTemplate;
+    if (template == null) {
+      template = compileCommandTemplate(this.passArgumentsSeparately);
+      this.commandTemplate = template;
     }
-    build.addAction(new UnleashArgumentInterceptorAction(command.toString()));
-    build.addAction(new UnleashBadgeAction(releaseVersion));
+    return template;
+  }
 
-    return new UnleashEnvironment(scmEnv);
+  /**
+   * Compiles the command template without caching it, f.i. to keep the release arguments and hooks out of the command
+   * regardless of the job configuration.
+   */
+  UnleashCommandTemplate compileCommandTemplate(boolean passSeparately) {
+    return UnleashCommandTemplate.compile(getGoals(), this.workflowPath, getProfiles(), getReleaseArgs(),
+        isUseLogTimestamps(), getHooks(), getVersionUpgradeStrategy(), getTagNamePattern(), getScmMessagePrefix(),
+        passSeparately);
   }
 
   private Map<String, String> updateCommandWithScmCredentials(@SuppressWarnings("rawtypes") AbstractBuild build,
@@ -288,25 +459,23 @@ public class UnleashMavenBuildWrapper extends BuildWrapper {
     return scmEnv;
   }
 
-  private void replaceJobParameterReferences(@SuppressWarnings("rawtypes") AbstractBuild build, StringBuilder command) {
-    if (command != null) {
-      ParametersAction action = build.getAction(ParametersAction.class);
-      if (action != null) {
-        int start = command.indexOf("${");
-        while (start >= 0) {
-          int end = command.indexOf("}", start);
-          String name = command.substring(start + 2, end);
-          ParameterValue paramValue = action.getParameter(name);
-          if (paramValue != null) {
-            Object value = paramValue.getValue();
-            if (value != null) {
-              command.replace(start, end + 1, value.toString());
-            }
-          }
-          start = command.indexOf("${", end);
+  /**
+   * Expands the references to build parameters in the command or in a single release argument or hook.
+   */
+  static String replaceJobParameterReferences(final ParametersAction action, CharSequence command) {
+    if (action == null) {
+      return command.toString();
+    }
+    return ParameterExpander.expand(command, name -> {
+      ParameterValue paramValue = action.getParameter(name);
+      if (paramValue != null) {
+        Object value = paramValue.getValue();
+        if (value != null) {
+          return value.toString();
         }
       }
-    }
+      return null;
+    });
   }
 
   @SuppressWarnings("unchecked")
@@ -320,6 +489,7 @@ public class UnleashMavenBuildWrapper extends BuildWrapper {
 
   public void setGoals(String goals) {
     this.goals = goals;
+    this.commandTemplate = null;
   }
 
   public String getProfiles() {
@@ -328,6 +498,7 @@ public class UnleashMavenBuildWrapper extends BuildWrapper {
 
   public void setProfiles(String profiles) {
     this.profiles = profiles;
+    this.commandTemplate = null;
   }
 
   public String getReleaseArgs() {
@@ -336,6 +507,7 @@ public class UnleashMavenBuildWrapper extends BuildWrapper {
 
   public void setReleaseArgs(String releaseArgs) {
     this.releaseArgs = releaseArgs;
+    this.commandTemplate = null;
   }
 
   public boolean isUseLogTimestamps() {
@@ -344,6 +516,7 @@ public class UnleashMavenBuildWrapper extends BuildWrapper {
 
   public void setUseLogTimestamps(boolean useLogTimestamps) {
     this.useLogTimestamps = useLogTimestamps;
+    this.commandTemplate = null;
   }
 
   public String getTagNamePattern() {
@@ -352,6 +525,7 @@ public class UnleashMavenBuildWrapper extends BuildWrapper {
 
   public void setTagNamePattern(String tagNamePattern) {
     this.tagNamePattern = tagNamePattern;
+    this.commandTemplate = null;
   }
 
   public String getScmMessagePrefix() {
@@ -360,6 +534,7 @@ public class UnleashMavenBuildWrapper extends BuildWrapper {
 
   public void setScmMessagePrefix(String scmMessagePrefix) {
     this.scmMessagePrefix = scmMessagePrefix;
+    this.commandTemplate = null;
   }
 
   public boolean isPreselectUseGlobalVersion() {
@@ -383,6 +558,7 @@ public class UnleashMavenBuildWrapper extends BuildWrapper {
 
   public void setHooks(List<HookDescriptor> hooks) {
     this.hooks = hooks;
+    this.commandTemplate = null;
   }
 
   public boolean isPreselectAllowLocalReleaseArtifacts() {
@@ -407,6 +583,7 @@ public class UnleashMavenBuildWrapper extends BuildWrapper {
 
   public void setWorkflowPath(String workflowPath) {
     this.workflowPath = workflowPath;
+    this.commandTemplate = null;
   }
 
   public String getCredentialsId() {
@@ -431,53 +608,77 @@ public class UnleashMavenBuildWrapper extends BuildWrapper {
 
   public void setVersionUpgradeStrategy(VersionUpgradeStrategy versionUpgradeStrategy) {
     this.versionUpgradeStrategy = MoreObjects.firstNonNull(versionUpgradeStrategy, VersionUpgradeStrategy.DEFAULT);
+    this.commandTemplate = null;
+  }
+
+  public boolean isPassArgumentsSeparately() {
+    return this.passArgumentsSeparately;
+  }
+
+  @DataBoundSetter
+  public void setPassArgumentsSeparately(boolean passArgumentsSeparately) {
+    this.passArgumentsSeparately = passArgumentsSeparately;
+    this.commandTemplate = null;
+  }
+
+  public String getReleaseThreads() {
+    return this.releaseThreads;
+  }
+
+  @DataBoundSetter
+  public void setReleaseThreads(String releaseThreads) {
+    this.releaseThreads = releaseThreads;
+  }
+
+  public boolean isPreflightChecks() {
+    return this.preflightChecks;
+  }
+
+  @DataBoundSetter
+  public void setPreflightChecks(boolean preflightChecks) {
+    this.preflightChecks = preflightChecks;
+  }
+
+  /**
+   * @return the key of the resource shared by the releases of this job, releases are throttled per key (see
+   *         {@link UnleashReleaseThrottle}). If blank, the key of the SCM is used.
+   */
+  public String getReleaseResourceKey() {
+    return this.releaseResourceKey;
+  }
+
+  @DataBoundSetter
+  public void setReleaseResourceKey(String releaseResourceKey) {
+    this.releaseResourceKey = releaseResourceKey;
+  }
+
+  private static final class AvailableProcessors extends MasterToSlaveCallable<Integer, RuntimeException> {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Integer call() {
+      return Runtime.getRuntime().availableProcessors();
+    }
   }
 
   private class UnleashEnvironment extends Environment {
     private Map<String, String> scmEnv;
 
-    public UnleashEnvironment(Map<String, String> scmEnv) {
+    private String releaseThreads;
+
+    public UnleashEnvironment(Map<String, String> scmEnv, String releaseThreads) {
       this.scmEnv = scmEnv;
+      this.releaseThreads = releaseThreads;
     }
 
     @Override
     public void buildEnvVars(Map<String, String> env) {
       env.putAll(this.scmEnv);
-    }
-
-    @Override
-    public boolean tearDown(AbstractBuild build, BuildListener listener) throws IOException, InterruptedException {
-      int lockedBuilds = 0;
-      Result result = build.getResult();
-      if (result != null && result.isBetterOrEqualTo(Result.UNSTABLE)) {
-        if (UnleashMavenBuildWrapper.this.numberOfBuildsToLock != 0) {
-          build.keepLog();
-          lockedBuilds++;
-        }
-        for (@SuppressWarnings("rawtypes")
-        Run run : (RunList<? extends Run>) build.getProject().getBuilds()) {
-          if (isSuccessfulReleaseBuild(run)) {
-            if (UnleashMavenBuildWrapper.this.numberOfBuildsToLock < 0
-                || lockedBuilds < UnleashMavenBuildWrapper.this.numberOfBuildsToLock) {
-              run.keepLog();
-              lockedBuilds++;
-            } else {
-              run.keepLog(false);
-            }
-          }
-        }
+      if (this.releaseThreads != null) {
+        String mavenArgs = env.get(ENV_VAR_MAVEN_ARGS);
+        env.put(ENV_VAR_MAVEN_ARGS,
+            StringUtils.isBlank(mavenArgs) ? "-T " + this.releaseThreads : mavenArgs + " -T " + this.releaseThreads);
       }
-
-      return super.tearDown(build, listener);
-    }
-
-    private boolean isSuccessfulReleaseBuild(@SuppressWarnings("rawtypes") Run run) {
-      UnleashBadgeAction badgeAction = run.getAction(UnleashBadgeAction.class);
-      if (badgeAction != null && !run.isBuilding()) {
-        Result result = run.getResult();
-        return result != null && result.isBetterOrEqualTo(Result.UNSTABLE);
-      }
-      return false;
     }
   }
 
@@ -507,6 +708,47 @@ public class UnleashMavenBuildWrapper extends BuildWrapper {
 
     public static final VersionUpgradeStrategy DEFAULT_VERSION_UPGRADE_STRATEGY = VersionUpgradeStrategy.DEFAULT;
 
+    public static final boolean DEFAULT_PASS_ARGUMENTS_SEPARATELY = false;
+
+    public static final String DEFAULT_RELEASE_THREADS = "";
+
+    public static final boolean DEFAULT_PREFLIGHT_CHECKS = false;
+
+    public static final String DEFAULT_RELEASE_RESOURCE_KEY = "";
+
+    /**
+     * No limit for the number of concurrent release builds per resource.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_RELEASES = 0;
+
+    public static final String SERIAL_RELEASE_THREADS = "1";
+
+    public static final String AUTO_RELEASE_THREADS = "auto";
+
+    /**
+     * The thread counts supported by Maven, f.i. {@code 4} or {@code 1.5C} (per core). Only the per-core count may be
+     * fractional.
+     */
+    static final Pattern RELEASE_THREADS_PATTERN = Pattern.compile("\\d+|\\d+(\\.\\d+)?C");
+
+    /**
+     * @return {@code true} if the given thread count is supported by Maven and results in at least one thread.
+     */
+    static boolean isValidReleaseThreads(String threads) {
+      if (!RELEASE_THREADS_PATTERN.matcher(threads).matches()) {
+        return false;
+      }
+      if (threads.endsWith("C")) {
+        return Float.parseFloat(threads.substring(0, threads.length() - 1)) > 0;
+      }
+      try {
+        return Integer.parseInt(threads) >= 1;
+      } catch (NumberFormatException e) {
+        // more threads than an int can hold
+        return false;
+      }
+    }
+
     private static final CredentialsMatcher CREDENTIALS_MATCHER = CredentialsMatchers.anyOf(
         CredentialsMatchers.instanceOf(StandardUsernamePasswordCredentials.class),
         CredentialsMatchers.instanceOf(SSHUserPrivateKey.class));
@@ -521,6 +763,10 @@ public class UnleashMavenBuildWrapper extends BuildWrapper {
 
     private String scmMessagePrefix = DEFAULT_SCM_MESSAGE_PREFIX;
 
+    private String releaseThreads = DEFAULT_RELEASE_THREADS;
+
+    private int maxConcurrentReleases = DEFAULT_MAX_CONCURRENT_RELEASES;
+
     public void setUseLogTimestamps(boolean useLogTimestamps) {
       this.useLogTimestamps = useLogTimestamps;
     }
@@ -561,6 +807,36 @@ public class UnleashMavenBuildWrapper extends BuildWrapper {
       return this.scmMessagePrefix;
     }
 
+    public void setReleaseThreads(String releaseThreads) {
+      this.releaseThreads = releaseThreads;
+    }
+
+    public String getReleaseThreads() {
+      return this.releaseThreads;
+    }
+
+    public void setMaxConcurrentReleases(int maxConcurrentReleases) {
+      this.maxConcurrentReleases = Math.max(0, maxConcurrentReleases);
+    }
+
+    /**
+     * @return the maximum number of concurrent release builds per resource key, {@code 0} for no limit.
+     */
+    public int getMaxConcurrentReleases() {
+      return this.maxConcurrentReleases;
+    }
+
+    // Suppress issue raised by Jenkins security-scan:
+    // lgtm[jenkins/no-permission-check]
+    public FormValidation doCheckReleaseThreads(@QueryParameter String value) {
+      String threads = StringUtils.trimToEmpty(value);
+      if (threads.isEmpty() || AUTO_RELEASE_THREADS.equalsIgnoreCase(threads) || isValidReleaseThreads(threads)) {
+        return FormValidation.ok();
+      }
+      return FormValidation
+          .error("Expected 'auto', a number of threads such as '4' or a positive number per core such as '1C'.");
+    }
+
     @Override
     public boolean isApplicable(AbstractProject<?, ?> item) {
       return item instanceof AbstractMavenProject;
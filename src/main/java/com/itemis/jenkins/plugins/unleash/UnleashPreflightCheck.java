@@ -0,0 +1,311 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.Serializable;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DeploymentRepository;
+import org.apache.maven.model.DistributionManagement;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.itemis.jenkins.plugins.unleash.util.MavenUtil;
+import com.itemis.maven.plugins.unleash.util.MavenVersionUtil;
+
+import hudson.AbortException;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.maven.MavenModule;
+import hudson.maven.MavenModuleSet;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+/**
+ * Checks the preconditions of a release before the Maven process is started so that releases fail within seconds
+ * instead of after building the whole reactor. All module POMs are read in parallel on the agent and checked for
+ * <ul>
+ * <li>SNAPSHOT parents, dependencies and plugins that are not part of the reactor,</li>
+ * <li>release artifacts that already exist in the local repository (unless local release artifacts are allowed) or in a
+ * file-based distribution repository.</li>
+ * </ul>
+ * Additionally the local Git repository is checked for an existing release tag. Only the tag name resolved for the
+ * root module is checked, the check is skipped if git can't be run on the agent.
+ */
+public final class UnleashPreflightCheck {
+  private UnleashPreflightCheck() {
+    // utility class
+  }
+
+  /**
+   * Runs the checks and prints a report of all problems found.
+   *
+   * @param globalReleaseVersion the release version of all modules or {@code null} if the release versions are
+   *          calculated per module.
+   * @param localRepository the local repository used by the release or {@code null} for the default one.
+   * @throws AbortException if any problem was found.
+   */
+  public static void check(MavenModuleSet project, FilePath workspace, Launcher launcher, TaskListener listener,
+      String globalReleaseVersion, String rootReleaseVersion, String tagNamePattern, FilePath localRepository,
+      boolean allowLocalReleaseArtifacts) throws IOException, InterruptedException {
+    PrintStream logger = listener.getLogger();
+    logger.println("[unleash] Running the pre-flight checks.");
+
+    Collection<MavenModule> modules = project.getModules();
+    List<String> pathsToPoms = Lists.newArrayListWithCapacity(modules.size());
+    Set<String> reactor = Sets.newHashSetWithExpectedSize(modules.size());
+    for (MavenModule module : modules) {
+      pathsToPoms.add(MavenUtil.getPathToPom(module, project));
+      reactor.add(module.getModuleName().toString());
+    }
+
+    List<Problem> problems = Lists.newArrayList(workspace.act(new CheckPoms(pathsToPoms, reactor, globalReleaseVersion,
+        localRepository != null ? localRepository.getRemote() : null, allowLocalReleaseArtifacts)));
+
+    String tag = PartialReleasePlan.resolveTagName(tagNamePattern, project.getRootModule().getModuleName(),
+        rootReleaseVersion);
+    if (tag != null && tagExists(workspace, launcher, logger, tag)) {
+      problems.add(new Problem(Category.EXISTING_TAG, project.getRootModule().getModuleName().toString(), tag));
+    }
+
+    if (problems.isEmpty()) {
+      logger.println("[unleash] The pre-flight checks passed.");
+      return;
+    }
+
+    ListMultimap<Category, Problem> problemsByCategory = LinkedListMultimap.create();
+    for (Category category : Category.values()) {
+      for (Problem problem : problems) {
+        if (problem.category == category) {
+          problemsByCategory.put(category, problem);
+        }
+      }
+    }
+    logger.println("[unleash] The pre-flight checks found " + problems.size() + " problem(s):");
+    for (Category category : problemsByCategory.keySet()) {
+      logger.println("[unleash]   " + category.title + ":");
+      for (Problem problem : problemsByCategory.get(category)) {
+        logger.println("[unleash]     " + problem.module + ": " + problem.detail);
+      }
+    }
+    throw new AbortException("The release was not started since the pre-flight checks failed.");
+  }
+
+  private static boolean tagExists(FilePath workspace, Launcher launcher, PrintStream logger, String tag)
+      throws InterruptedException {
+    try {
+      return launcher.launch().cmds("git", "rev-parse", "--quiet", "--verify", "refs/tags/" + tag).pwd(workspace)
+          .quiet(true).join() == 0;
+    } catch (IOException e) {
+      logger.println("[unleash] Skipped the check for an existing release tag since git could not be run: "
+          + e.getMessage());
+      return false;
+    }
+  }
+
+  enum Category {
+    UNREADABLE_POM("Unreadable POMs"), //
+    SNAPSHOT_PARENT("SNAPSHOT parents"), //
+    SNAPSHOT_DEPENDENCY("SNAPSHOT dependencies"), //
+    SNAPSHOT_PLUGIN("SNAPSHOT plugins"), //
+    EXISTING_ARTIFACT("Release artifacts that already exist"), //
+    EXISTING_TAG("Release tags that already exist");
+
+    private final String title;
+
+    Category(String title) {
+      this.title = title;
+    }
+  }
+
+  static final class Problem implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Category category;
+
+    private final String module;
+
+    private final String detail;
+
+    Problem(Category category, String module, String detail) {
+      this.category = category;
+      this.module = module;
+      this.detail = detail;
+    }
+  }
+
+  private static final class CheckPoms extends MasterToSlaveFileCallable<List<Problem>> {
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> pathsToPoms;
+
+    private final Set<String> reactor;
+
+    private final String globalReleaseVersion;
+
+    private final String localRepository;
+
+    private final boolean allowLocalReleaseArtifacts;
+
+    CheckPoms(List<String> pathsToPoms, Set<String> reactor, String globalReleaseVersion, String localRepository,
+        boolean allowLocalReleaseArtifacts) {
+      this.pathsToPoms = pathsToPoms;
+      this.reactor = reactor;
+      this.globalReleaseVersion = globalReleaseVersion;
+      this.localRepository = localRepository;
+      this.allowLocalReleaseArtifacts = allowLocalReleaseArtifacts;
+    }
+
+    @Override
+    public List<Problem> invoke(File workspace, VirtualChannel channel) throws IOException, InterruptedException {
+      File repository = this.localRepository != null ? new File(this.localRepository)
+          : new File(System.getProperty("user.home"), ".m2/repository");
+      return this.pathsToPoms.parallelStream().flatMap(path -> check(new File(workspace, path), repository).stream())
+          .collect(Collectors.toList());
+    }
+
+    private List<Problem> check(File pom, File repository) {
+      List<Problem> problems = Lists.newArrayList();
+      Model model;
+      try (InputStream in = Files.newInputStream(pom.toPath())) {
+        model = new MavenXpp3Reader().read(in);
+      } catch (Exception e) {
+        problems.add(new Problem(Category.UNREADABLE_POM, pom.getPath(), e.getMessage()));
+        return problems;
+      }
+
+      Parent parent = model.getParent();
+      String groupId = model.getGroupId() != null ? model.getGroupId() : parent != null ? parent.getGroupId() : null;
+      String version = model.getVersion() != null ? model.getVersion() : parent != null ? parent.getVersion() : null;
+      String module = groupId + ":" + model.getArtifactId();
+
+      if (parent != null
+          && isExternalSnapshot(parent.getGroupId(), parent.getArtifactId(), parent.getVersion(), model)) {
+        problems.add(new Problem(Category.SNAPSHOT_PARENT, module,
+            parent.getGroupId() + ":" + parent.getArtifactId() + ":" + parent.getVersion()));
+      }
+
+      List<Dependency> dependencies = Lists.newArrayList(model.getDependencies());
+      if (model.getDependencyManagement() != null) {
+        dependencies.addAll(model.getDependencyManagement().getDependencies());
+      }
+      for (Dependency dependency : dependencies) {
+        if (isExternalSnapshot(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion(), model)) {
+          problems.add(new Problem(Category.SNAPSHOT_DEPENDENCY, module, dependency.getGroupId() + ":"
+              + dependency.getArtifactId() + ":" + resolve(dependency.getVersion(), model)));
+        }
+      }
+
+      if (model.getBuild() != null) {
+        List<Plugin> plugins = Lists.newArrayList(model.getBuild().getPlugins());
+        if (model.getBuild().getPluginManagement() != null) {
+          plugins.addAll(model.getBuild().getPluginManagement().getPlugins());
+        }
+        for (Plugin plugin : plugins) {
+          if (isExternalSnapshot(plugin.getGroupId(), plugin.getArtifactId(), plugin.getVersion(), model)) {
+            problems.add(new Problem(Category.SNAPSHOT_PLUGIN, module,
+                plugin.getGroupId() + ":" + plugin.getArtifactId() + ":" + resolve(plugin.getVersion(), model)));
+          }
+        }
+      }
+
+      String releaseVersion = this.globalReleaseVersion;
+      if (StringUtils.isBlank(releaseVersion) && version != null) {
+        releaseVersion = MavenVersionUtil.calculateReleaseVersion(resolve(version, model));
+      }
+      if (groupId != null && StringUtils.isNotBlank(releaseVersion)) {
+        if (!this.allowLocalReleaseArtifacts && exists(repository, groupId, model.getArtifactId(), releaseVersion)) {
+          problems.add(new Problem(Category.EXISTING_ARTIFACT, module, releaseVersion + " in " + repository));
+        }
+        File fileRepository = getFileRepository(model);
+        if (fileRepository != null && exists(fileRepository, groupId, model.getArtifactId(), releaseVersion)) {
+          problems.add(new Problem(Category.EXISTING_ARTIFACT, module, releaseVersion + " in " + fileRepository));
+        }
+      }
+      return problems;
+    }
+
+    private boolean isExternalSnapshot(String groupId, String artifactId, String version, Model model) {
+      String resolvedVersion = resolve(version, model);
+      return resolvedVersion != null && resolvedVersion.endsWith("-SNAPSHOT")
+          && !this.reactor.contains(resolve(groupId, model) + ":" + artifactId);
+    }
+
+    /**
+     * Resolves a value that consists of a single property reference from the properties of the POM.
+     */
+    private static String resolve(String value, Model model) {
+      if (value == null || !value.startsWith("${") || !value.endsWith("}")) {
+        return value;
+      }
+      String name = value.substring(2, value.length() - 1);
+      if ("project.version".equals(name) || "version".equals(name)) {
+        return model.getVersion() != null ? model.getVersion()
+            : model.getParent() != null ? model.getParent().getVersion() : value;
+      }
+      if ("project.groupId".equals(name) || "groupId".equals(name)) {
+        return model.getGroupId() != null ? model.getGroupId()
+            : model.getParent() != null ? model.getParent().getGroupId() : value;
+      }
+      return model.getProperties().getProperty(name, value);
+    }
+
+    private static File getFileRepository(Model model) {
+      DistributionManagement distributionManagement = model.getDistributionManagement();
+      DeploymentRepository repository = distributionManagement != null ? distributionManagement.getRepository()
+          : null;
+      if (repository == null || repository.getUrl() == null || !repository.getUrl().startsWith("file:")) {
+        return null;
+      }
+      try {
+        return new File(URI.create(repository.getUrl()));
+      } catch (IllegalArgumentException e) {
+        return null;
+      }
+    }
+
+    private static boolean exists(File repository, String groupId, String artifactId, String version) {
+      File directory = new File(repository, groupId.replace('.', '/') + '/' + artifactId + '/' + version);
+      return new File(directory, artifactId + '-' + version + ".pom").isFile();
+    }
+  }
+}
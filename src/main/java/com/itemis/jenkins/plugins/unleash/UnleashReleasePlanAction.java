@@ -0,0 +1,127 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.google.common.collect.Maps;
+import com.itemis.maven.plugins.unleash.util.MavenVersionUtil;
+import com.itemis.maven.plugins.unleash.util.VersionUpgradeStrategy;
+
+import hudson.maven.MavenModule;
+import hudson.model.Action;
+
+/**
+ * Records the versions of all modules as the Maven plugin parsed them for a build together with the release and
+ * development versions that would be calculated for a release of this state. This allows the release page and the
+ * release build to resolve versions without reading the workspace.
+ */
+public class UnleashReleasePlanAction implements Action {
+  private final Map<String, ModulePlan> modules;
+
+  public UnleashReleasePlanAction(Collection<MavenModule> modules) {
+    this.modules = Maps.newHashMapWithExpectedSize(modules.size());
+    for (MavenModule module : modules) {
+      String version = module.getVersion();
+      if (StringUtils.isNotBlank(version)) {
+        this.modules.put(getKey(module), new ModulePlan(version));
+      }
+    }
+  }
+
+  /**
+   * @return {@code true} if the plan contains no module versions.
+   */
+  public boolean isEmpty() {
+    return this.modules == null || this.modules.isEmpty();
+  }
+
+  @Override
+  public String getIconFileName() {
+    return null;
+  }
+
+  @Override
+  public String getDisplayName() {
+    return null;
+  }
+
+  @Override
+  public String getUrlName() {
+    return null;
+  }
+
+  /**
+   * @return the plan of the given module or {@code null} if the module was not known at the time the plan was
+   *         recorded.
+   */
+  public ModulePlan getModulePlan(MavenModule module) {
+    if (module == null || this.modules == null) {
+      return null;
+    }
+    return this.modules.get(getKey(module));
+  }
+
+  public Map<String, ModulePlan> getModulePlans() {
+    return this.modules != null ? Collections.unmodifiableMap(this.modules) : Collections.emptyMap();
+  }
+
+  private static String getKey(MavenModule module) {
+    return module.getModuleName().toString();
+  }
+
+  public static class ModulePlan {
+    private final String currentVersion;
+
+    private final String releaseVersion;
+
+    private final Map<VersionUpgradeStrategy, String> developmentVersions;
+
+    ModulePlan(String currentVersion) {
+      this.currentVersion = currentVersion;
+      this.releaseVersion = MavenVersionUtil.calculateReleaseVersion(currentVersion);
+      this.developmentVersions = new EnumMap<>(VersionUpgradeStrategy.class);
+      for (VersionUpgradeStrategy strategy : VersionUpgradeStrategy.values()) {
+        this.developmentVersions.put(strategy, MavenVersionUtil.calculateNextSnapshotVersion(currentVersion, strategy));
+      }
+    }
+
+    public String getCurrentVersion() {
+      return this.currentVersion;
+    }
+
+    public String getReleaseVersion() {
+      return this.releaseVersion;
+    }
+
+    public String getDevelopmentVersion(VersionUpgradeStrategy strategy) {
+      return this.developmentVersions.get(strategy != null ? strategy : VersionUpgradeStrategy.DEFAULT);
+    }
+  }
+}
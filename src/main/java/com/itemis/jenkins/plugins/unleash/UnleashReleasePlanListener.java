@@ -0,0 +1,69 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.maven.MavenModuleSet;
+import hudson.maven.MavenModuleSetBuild;
+import hudson.model.Result;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+
+/**
+ * Records an {@link UnleashReleasePlanAction} on every successful or unstable build of a job that has the Unleash build
+ * wrapper configured. The versions are taken from the modules as the Maven plugin parsed them for the build, so the
+ * workspace is not read again. The action is saved with the build record which is written after the build completed.
+ */
+@Extension
+public class UnleashReleasePlanListener extends RunListener<MavenModuleSetBuild> {
+  @Override
+  public void onCompleted(MavenModuleSetBuild build, @NonNull TaskListener listener) {
+    Result result = build.getResult();
+    if (result == null || result.isWorseThan(Result.UNSTABLE)) {
+      return;
+    }
+    MavenModuleSet project = build.getProject();
+    if (project.getBuildWrappersList().get(UnleashMavenBuildWrapper.class) == null) {
+      return;
+    }
+
+    UnleashReleasePlanAction releasePlan = new UnleashReleasePlanAction(project.getModules());
+    if (!releasePlan.isEmpty()) {
+      build.addOrReplaceAction(releasePlan);
+    }
+  }
+
+  /**
+   * @return the release plan recorded by the last successful or unstable build of the project or {@code null} if there
+   *         is none.
+   */
+  public static UnleashReleasePlanAction getLastReleasePlan(MavenModuleSet project) {
+    MavenModuleSetBuild lastSuccessfulBuild = project.getLastSuccessfulBuild();
+    if (lastSuccessfulBuild == null) {
+      return null;
+    }
+    return lastSuccessfulBuild.getAction(UnleashReleasePlanAction.class);
+  }
+}
@@ -0,0 +1,365 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import hudson.Extension;
+import hudson.maven.MavenModuleSet;
+import hudson.maven.MavenModuleSetBuild;
+import hudson.model.Computer;
+import hudson.model.Executor;
+import hudson.model.Item;
+import hudson.model.Queue;
+import hudson.model.TaskListener;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import hudson.model.queue.CauseOfBlockage;
+import hudson.model.queue.QueueListener;
+import hudson.model.queue.QueueTaskDispatcher;
+import hudson.scm.SCM;
+import jenkins.model.Jenkins;
+
+/**
+ * Limits the number of concurrent release builds that share a resource, such as the SCM repository or the deployment
+ * repository. The resource of a job is identified by the resource key of its {@link UnleashMavenBuildWrapper} which
+ * defaults to the key of its SCM.<br>
+ * Release builds that exceed the global limit per resource stay in the queue and are started in the order in which
+ * they were queued.<br>
+ * The running and waiting releases per resource are collected once into a {@link ReleaseQueue} which is reused for all
+ * items of a queue maintenance until the queue, the running builds or the jobs change.
+ */
+@Extension
+public class UnleashReleaseThrottle extends QueueTaskDispatcher {
+  private static final AtomicLong generation = new AtomicLong();
+
+  private static volatile ReleaseQueue releaseQueue;
+
+  @Override
+  public CauseOfBlockage canRun(Queue.Item item) {
+    int maxConcurrentReleases = getMaxConcurrentReleases();
+    if (maxConcurrentReleases <= 0) {
+      return null;
+    }
+    String key = getResourceKey(item);
+    if (key == null) {
+      return null;
+    }
+
+    ReleaseQueue queue = ReleaseQueue.get();
+    int running = queue.getRunning(key);
+    int position = queue.getPosition(key, item);
+    if (running + position < maxConcurrentReleases) {
+      return null;
+    }
+    return new WaitingForResource(key, running, position);
+  }
+
+  /**
+   * @return the resource key of a queued release build or {@code null} if the item is no release build of a job using
+   *         the {@link UnleashMavenBuildWrapper}.
+   */
+  static String getResourceKey(Queue.Item item) {
+    if (!(item.task instanceof MavenModuleSet project) || !isRelease(item)) {
+      return null;
+    }
+    return getResourceKey(project);
+  }
+
+  static String getResourceKey(MavenModuleSet project) {
+    UnleashMavenBuildWrapper wrapper = project.getBuildWrappersList().get(UnleashMavenBuildWrapper.class);
+    if (wrapper == null) {
+      return null;
+    }
+    if (StringUtils.isNotBlank(wrapper.getReleaseResourceKey())) {
+      return wrapper.getReleaseResourceKey().trim();
+    }
+    SCM scm = project.getScm();
+    String key = scm != null ? scm.getKey() : null;
+    // SCMs without a repository, such as the NullSCM, use their type as the key which doesn't identify a resource
+    if (key == null || key.equals(scm.getType())) {
+      return project.getFullName();
+    }
+    return key;
+  }
+
+  private static boolean isRelease(Queue.Item item) {
+    for (Object cause : item.getCauses()) {
+      if (cause instanceof UnleashCause) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int getMaxConcurrentReleases() {
+    UnleashMavenBuildWrapper.DescriptorImpl descriptor = Jenkins.get()
+        .getDescriptorByType(UnleashMavenBuildWrapper.DescriptorImpl.class);
+    return descriptor != null ? descriptor.getMaxConcurrentReleases() : 0;
+  }
+
+  /**
+   * Discards the collected release queue after a change that affects the running or waiting releases.
+   */
+  static void invalidate() {
+    generation.incrementAndGet();
+  }
+
+  /**
+   * The running and waiting release builds per resource at a point in time.
+   */
+  static final class ReleaseQueue {
+    private final long generation;
+
+    /**
+     * The number of running release builds and those that are about to start on an executor per resource.
+     */
+    private final Map<String, Integer> running = Maps.newHashMap();
+
+    /**
+     * The release builds per resource that wait in the queue and don't run yet, in the order in which they were queued.
+     */
+    private final Map<String, List<Queue.Item>> waiting = Maps.newHashMap();
+
+    private ReleaseQueue(long generation) {
+      this.generation = generation;
+
+      for (Computer computer : Jenkins.get().getComputers()) {
+        for (Executor executor : computer.getAllExecutors()) {
+          if (executor.getCurrentExecutable() instanceof MavenModuleSetBuild build && build.isBuilding()
+              && build.getCause(UnleashCause.class) != null) {
+            countRunning(getResourceKey(build.getProject()));
+          }
+        }
+      }
+
+      Queue queue = Jenkins.get().getQueue();
+      Set<Long> pendingIds = Sets.newHashSet();
+      for (Queue.Item pending : queue.getPendingItems()) {
+        pendingIds.add(pending.getId());
+        countRunning(getResourceKey(pending));
+      }
+      for (Queue.Item item : queue.getItems()) {
+        String key = getResourceKey(item);
+        if (key != null && !pendingIds.contains(item.getId())) {
+          this.waiting.computeIfAbsent(key, k -> Lists.newArrayList()).add(item);
+        }
+      }
+      for (List<Queue.Item> items : this.waiting.values()) {
+        items.sort(Comparator.comparingLong((Queue.Item item) -> item.getInQueueSince())
+            .thenComparingLong(item -> item.getId()));
+      }
+    }
+
+    /**
+     * @return the release queue of the current state which is only collected again after a change.
+     */
+    static ReleaseQueue get() {
+      long current = UnleashReleaseThrottle.generation.get();
+      ReleaseQueue queue = releaseQueue;
+      if (queue == null || queue.generation != current) {
+        queue = new ReleaseQueue(current);
+        releaseQueue = queue;
+      }
+      return queue;
+    }
+
+    private void countRunning(String key) {
+      if (key != null) {
+        this.running.merge(key, 1, Integer::sum);
+      }
+    }
+
+    int getRunning(String key) {
+      return this.running.getOrDefault(key, 0);
+    }
+
+    List<Queue.Item> getWaiting(String key) {
+      return ImmutableList.copyOf(this.waiting.getOrDefault(key, ImmutableList.of()));
+    }
+
+    /**
+     * @return the number of release builds for the same resource that were queued before the given one.
+     */
+    int getPosition(String key, Queue.Item item) {
+      List<Queue.Item> items = this.waiting.getOrDefault(key, ImmutableList.of());
+      for (int i = 0; i < items.size(); i++) {
+        if (items.get(i).getId() == item.getId()) {
+          return i;
+        }
+      }
+      return items.size();
+    }
+  }
+
+  /**
+   * Describes the release queue of a resource as shown on the release page of a job.
+   */
+  public static final class QueueStatus {
+    private final String key;
+
+    private final int running;
+
+    private final int waiting;
+
+    private final int position;
+
+    QueueStatus(String key, int running, int waiting, int position) {
+      this.key = key;
+      this.running = running;
+      this.waiting = waiting;
+      this.position = position;
+    }
+
+    /**
+     * @return the queue status of the resource of the project or {@code null} if releases aren't throttled.
+     */
+    public static QueueStatus of(MavenModuleSet project) {
+      if (getMaxConcurrentReleases() <= 0) {
+        return null;
+      }
+      String key = getResourceKey(project);
+      if (key == null) {
+        return null;
+      }
+      ReleaseQueue queue = ReleaseQueue.get();
+      List<Queue.Item> waiting = queue.getWaiting(key);
+      int position = -1;
+      for (int i = 0; i < waiting.size(); i++) {
+        if (waiting.get(i).task == project) {
+          position = i;
+        }
+      }
+      return new QueueStatus(key, queue.getRunning(key), waiting.size(), position);
+    }
+
+    public String getKey() {
+      return this.key;
+    }
+
+    public int getRunning() {
+      return this.running;
+    }
+
+    public int getWaiting() {
+      return this.waiting;
+    }
+
+    /**
+     * @return the zero-based position of the queued release of the project among the waiting releases or {@code -1} if
+     *         the project has no waiting release.
+     */
+    public int getPosition() {
+      return this.position;
+    }
+
+    public int getMaxConcurrentReleases() {
+      return UnleashReleaseThrottle.getMaxConcurrentReleases();
+    }
+  }
+
+  private static final class WaitingForResource extends CauseOfBlockage {
+    private final String key;
+
+    private final int running;
+
+    private final int position;
+
+    WaitingForResource(String key, int running, int position) {
+      this.key = key;
+      this.running = running;
+      this.position = position;
+    }
+
+    @Override
+    public String getShortDescription() {
+      return "Waiting for a release slot of " + this.key + " (" + this.running + " running, position "
+          + (this.position + 1) + " in the release queue)";
+    }
+  }
+
+  /**
+   * Discards the release queue when items enter, start or leave the queue.
+   */
+  @Extension
+  public static final class ReleaseQueueListener extends QueueListener {
+    @Override
+    public void onEnterWaiting(Queue.WaitingItem wi) {
+      invalidate();
+    }
+
+    @Override
+    public void onEnterBuildable(Queue.BuildableItem bi) {
+      invalidate();
+    }
+
+    @Override
+    public void onLeaveBuildable(Queue.BuildableItem bi) {
+      invalidate();
+    }
+
+    @Override
+    public void onLeft(Queue.LeftItem li) {
+      invalidate();
+    }
+  }
+
+  /**
+   * Discards the release queue when release builds finish, which frees their resource.
+   */
+  @Extension
+  public static final class ReleaseBuildListener extends RunListener<MavenModuleSetBuild> {
+    @Override
+    public void onCompleted(MavenModuleSetBuild build, TaskListener listener) {
+      invalidate();
+    }
+
+    @Override
+    public void onFinalized(MavenModuleSetBuild build) {
+      invalidate();
+    }
+  }
+
+  /**
+   * Discards the release queue when the configuration of a job and thus its resource key may have changed.
+   */
+  @Extension
+  public static final class ReleaseJobListener extends ItemListener {
+    @Override
+    public void onUpdated(Item item) {
+      invalidate();
+    }
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash;
+
+import java.util.List;
+
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.StaplerRequest2;
+
+import com.google.common.base.Splitter;
+import com.itemis.jenkins.plugins.unleash.history.ReleaseVersionIndex;
+import com.itemis.jenkins.plugins.unleash.history.ReleaseVersionIndex.BuildLocation;
+import com.itemis.jenkins.plugins.unleash.util.PomCoordinatesCache;
+
+import hudson.Extension;
+import hudson.model.Job;
+import hudson.model.RootAction;
+import jenkins.model.Jenkins;
+
+/**
+ * Controller-wide entry point of the plugin. {@code /unleash/release/<groupId>/<artifactId>/<version>} redirects to the
+ * build that released the given version. {@code /unleash/pomCoordinatesCache/api/} exports the statistics of the
+ * {@link PomCoordinatesCache}.
+ */
+@Extension
+public class UnleashRootAction implements RootAction {
+  @Override
+  public String getIconFileName() {
+    return null;
+  }
+
+  @Override
+  public String getDisplayName() {
+    return null;
+  }
+
+  @Override
+  public String getUrlName() {
+    return "unleash";
+  }
+
+  public PomCoordinatesCache getPomCoordinatesCache() {
+    Jenkins.get().checkPermission(Jenkins.SYSTEM_READ);
+    return PomCoordinatesCache.get();
+  }
+
+  public HttpResponse doRelease(StaplerRequest2 req) {
+    List<String> segments = Splitter.on('/').omitEmptyStrings().splitToList(req.getRestOfPath());
+    if (segments.size() != 3) {
+      return HttpResponses.errorWithoutStack(400, "Expected /release/<groupId>/<artifactId>/<version>");
+    }
+
+    BuildLocation location = ReleaseVersionIndex.get().getBuild(segments.get(0), segments.get(1), segments.get(2));
+    if (location == null) {
+      return HttpResponses.notFound();
+    }
+    // returns null if the user lacks the read permission which must not be distinguishable from an unknown release
+    Job<?, ?> job = Jenkins.get().getItemByFullName(location.getJobFullName(), Job.class);
+    if (job == null) {
+      return HttpResponses.notFound();
+    }
+    return HttpResponses.redirectViaContextPath(job.getUrl() + location.getNumber() + '/');
+  }
+}
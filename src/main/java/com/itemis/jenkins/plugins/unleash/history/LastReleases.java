@@ -0,0 +1,254 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.itemis.jenkins.plugins.unleash.UnleashMavenBuildWrapper;
+
+import hudson.XmlFile;
+import hudson.model.BuildableItemWithBuildWrappers;
+import hudson.model.Computer;
+import hudson.model.Job;
+import hudson.util.XStream2;
+import jenkins.model.Jenkins;
+import jenkins.util.AtmostOneTaskExecutor;
+
+/**
+ * A controller-wide map from job to its last successful and last failed release build. It is persisted in a single
+ * file in the Jenkins home directory so that list views and permalinks can show release information without loading
+ * any build, even right after a restart.
+ */
+public final class LastReleases {
+  private static final Logger LOGGER = Logger.getLogger(LastReleases.class.getName());
+
+  private static final String FILE_NAME = "unleash-last-releases.xml";
+
+  private static final XStream2 XSTREAM = new XStream2();
+
+  static {
+    XSTREAM.alias("lastReleases", LastReleases.class);
+    XSTREAM.alias("entry", Entry.class);
+    XSTREAM.alias("release", ReleaseBuildRecord.class);
+  }
+
+  private static final Entry NONE = new Entry(null, null);
+
+  private static volatile LastReleases instance;
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  /**
+   * The full names of the jobs whose entry is currently computed in the background.
+   */
+  private transient Set<String> indexing;
+
+  /**
+   * Coalesces the saves of many updates in a row, f.i. when the first dashboard is rendered after an upgrade.
+   */
+  private transient AtmostOneTaskExecutor<Void> saver;
+
+  private LastReleases() {
+    readResolve();
+  }
+
+  private Object readResolve() {
+    this.indexing = ConcurrentHashMap.newKeySet();
+    this.saver = new AtmostOneTaskExecutor<>(Computer.threadPoolForRemoting, () -> {
+      saveNow();
+      return null;
+    });
+    return this;
+  }
+
+  public static LastReleases get() {
+    LastReleases lastReleases = instance;
+    if (lastReleases == null) {
+      synchronized (LastReleases.class) {
+        lastReleases = instance;
+        if (lastReleases == null) {
+          lastReleases = load();
+          instance = lastReleases;
+        }
+      }
+    }
+    return lastReleases;
+  }
+
+  private static LastReleases load() {
+    XmlFile file = getFile();
+    if (file.exists()) {
+      try {
+        return (LastReleases) file.read();
+      } catch (IOException | RuntimeException e) {
+        LOGGER.log(Level.WARNING, "Could not load the last releases, they will be recomputed.", e);
+      }
+    }
+    return new LastReleases();
+  }
+
+  private static XmlFile getFile() {
+    return new XmlFile(XSTREAM, new File(Jenkins.get().getRootDir(), FILE_NAME));
+  }
+
+  /**
+   * @return the last successful release build of the job or {@code null} if there is none. If the job has not been
+   *         indexed yet, its release builds are indexed first.
+   */
+  public ReleaseBuildRecord getLastSuccessful(Job<?, ?> job) {
+    return getEntry(job).lastSuccessful;
+  }
+
+  /**
+   * @return the last failed release build of the job or {@code null} if there is none. If the job has not been
+   *         indexed yet, its release builds are indexed first.
+   */
+  public ReleaseBuildRecord getLastFailed(Job<?, ?> job) {
+    return getEntry(job).lastFailed;
+  }
+
+  /**
+   * Same as {@link #getLastSuccessful(Job)} but never waits for the job to be indexed. A job that has not been indexed
+   * yet is indexed in the background and {@code null} is returned until then. Meant for views that render many jobs.
+   */
+  public ReleaseBuildRecord getIndexedLastSuccessful(Job<?, ?> job) {
+    return getIndexedEntry(job).lastSuccessful;
+  }
+
+  /**
+   * Same as {@link #getLastFailed(Job)} but never waits for the job to be indexed. A job that has not been indexed yet
+   * is indexed in the background and {@code null} is returned until then. Meant for views that render many jobs.
+   */
+  public ReleaseBuildRecord getIndexedLastFailed(Job<?, ?> job) {
+    return getIndexedEntry(job).lastFailed;
+  }
+
+  private Entry getEntry(Job<?, ?> job) {
+    Entry entry = this.entries.get(job.getFullName());
+    if (entry == null) {
+      entry = isUnleashJob(job) ? update(job) : NONE;
+    }
+    return entry;
+  }
+
+  private Entry getIndexedEntry(Job<?, ?> job) {
+    Entry entry = this.entries.get(job.getFullName());
+    if (entry == null) {
+      if (isUnleashJob(job) && this.indexing.add(job.getFullName())) {
+        Computer.threadPoolForRemoting.submit(() -> {
+          try {
+            update(job);
+          } finally {
+            this.indexing.remove(job.getFullName());
+          }
+        });
+      }
+      entry = NONE;
+    }
+    return entry;
+  }
+
+  /**
+   * Only jobs using the Unleash build wrapper get indexed so that no index file is written into other jobs.
+   */
+  private static boolean isUnleashJob(Job<?, ?> job) {
+    return job instanceof BuildableItemWithBuildWrappers
+        && ((BuildableItemWithBuildWrappers) job).getBuildWrappersList().get(UnleashMavenBuildWrapper.class) != null;
+  }
+
+  /**
+   * Recomputes the entry of the job from its {@link ReleaseBuildIndex}.
+   */
+  Entry update(Job<?, ?> job) {
+    ReleaseBuildIndex index = ReleaseBuildIndex.of(job);
+    Entry entry = new Entry(index.getLastSuccessful(), index.getLastFailed());
+    Entry previous = this.entries.put(job.getFullName(), entry);
+    if (!entry.equals(previous)) {
+      save();
+    }
+    return entry;
+  }
+
+  void rename(String oldFullName, String newFullName) {
+    Entry entry = this.entries.remove(oldFullName);
+    if (entry != null) {
+      this.entries.put(newFullName, entry);
+      save();
+    }
+  }
+
+  void remove(String fullName) {
+    if (this.entries.remove(fullName) != null) {
+      save();
+    }
+  }
+
+  private void save() {
+    this.saver.submit();
+  }
+
+  private synchronized void saveNow() {
+    try {
+      getFile().write(this);
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Could not save the last releases.", e);
+    }
+  }
+
+  static final class Entry {
+    private final ReleaseBuildRecord lastSuccessful;
+
+    private final ReleaseBuildRecord lastFailed;
+
+    Entry(ReleaseBuildRecord lastSuccessful, ReleaseBuildRecord lastFailed) {
+      this.lastSuccessful = lastSuccessful;
+      this.lastFailed = lastFailed;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Entry)) {
+        return false;
+      }
+      Entry other = (Entry) obj;
+      return getNumber(this.lastSuccessful) == getNumber(other.lastSuccessful)
+          && getNumber(this.lastFailed) == getNumber(other.lastFailed);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * getNumber(this.lastSuccessful) + getNumber(this.lastFailed);
+    }
+
+    private static int getNumber(ReleaseBuildRecord record) {
+      return record != null ? record.getNumber() : -1;
+    }
+  }
+}
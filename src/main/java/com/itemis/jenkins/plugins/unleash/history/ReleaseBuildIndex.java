@@ -0,0 +1,256 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.itemis.jenkins.plugins.unleash.UnleashBadgeAction;
+
+import hudson.XmlFile;
+import hudson.model.Computer;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.util.XStream2;
+
+/**
+ * A per-job index of all release builds that is persisted next to the job configuration. It is maintained
+ * incrementally by the {@link ReleaseBuildIndexListener} so that the release history of a job can be evaluated without
+ * loading its builds. The index is rebuilt in the background from the build history if the index file doesn't exist.
+ */
+public final class ReleaseBuildIndex {
+  private static final Logger LOGGER = Logger.getLogger(ReleaseBuildIndex.class.getName());
+
+  static final String FILE_NAME = "unleash-releases.xml";
+
+  private static final XStream2 XSTREAM = new XStream2();
+
+  private static final Map<String, ReleaseBuildIndex> INDEXES = new ConcurrentHashMap<>();
+
+  static {
+    XSTREAM.alias("releaseBuildIndex", ReleaseBuildIndex.class);
+    XSTREAM.alias("release", ReleaseBuildRecord.class);
+  }
+
+  private static final Comparator<ReleaseBuildRecord> NEWEST_FIRST = new Comparator<ReleaseBuildRecord>() {
+    @Override
+    public int compare(ReleaseBuildRecord r1, ReleaseBuildRecord r2) {
+      return Integer.compare(r2.getNumber(), r1.getNumber());
+    }
+  };
+
+  /**
+   * The records of all release builds, newest first.
+   */
+  private List<ReleaseBuildRecord> records = Lists.newArrayList();
+
+  private transient Job<?, ?> job;
+
+  /**
+   * Whether the index still has to be rebuilt from the build history. The index isn't saved until then so that an
+   * incomplete index doesn't survive a restart.
+   */
+  private transient boolean rebuildPending;
+
+  private ReleaseBuildIndex(Job<?, ?> job) {
+    this.job = job;
+  }
+
+  /**
+   * @return the release build index of the job which is loaded or rebuilt if necessary.
+   */
+  public static ReleaseBuildIndex of(Job<?, ?> job) {
+    String key = getKey(job);
+    ReleaseBuildIndex index = INDEXES.get(key);
+    if (index != null) {
+      return index;
+    }
+
+    // loaded outside of the map since listeners that are notified while reading the index file or the builds may
+    // request the index of the same job again
+    ReleaseBuildIndex loaded = load(job);
+    index = INDEXES.putIfAbsent(key, loaded);
+    if (index != null) {
+      return index;
+    }
+    if (loaded.rebuildPending) {
+      Computer.threadPoolForRemoting.submit(loaded::rebuild);
+    }
+    return loaded;
+  }
+
+  /**
+   * Drops the in-memory index of the job, f.i. after the job has been renamed or deleted.
+   */
+  static void forget(Job<?, ?> job) {
+    INDEXES.values().removeIf(index -> index.job == job);
+  }
+
+  private static String getKey(Job<?, ?> job) {
+    return job.getRootDir().getAbsolutePath();
+  }
+
+  private static ReleaseBuildIndex load(Job<?, ?> job) {
+    XmlFile file = getFile(job);
+    if (file.exists()) {
+      try {
+        ReleaseBuildIndex index = (ReleaseBuildIndex) file.read();
+        index.job = job;
+        if (index.records == null) {
+          index.records = Lists.newArrayList();
+        }
+        return index;
+      } catch (IOException | RuntimeException e) {
+        LOGGER.log(Level.WARNING, "Could not load the release build index of " + job.getFullName() + ", rebuilding it.",
+            e);
+      }
+    }
+
+    ReleaseBuildIndex index = new ReleaseBuildIndex(job);
+    index.rebuildPending = true;
+    return index;
+  }
+
+  private static XmlFile getFile(Job<?, ?> job) {
+    return new XmlFile(XSTREAM, new File(job.getRootDir(), FILE_NAME));
+  }
+
+  /**
+   * Rebuilds the index from the build history of the job. This loads all builds of the job without holding the lock
+   * of the index. Records of builds that completed in the meantime are kept if the build still exists.
+   */
+  public void rebuild() {
+    List<ReleaseBuildRecord> rebuilt = Lists.newArrayList();
+    Set<Integer> numbers = Sets.newHashSet();
+    for (Run<?, ?> run : this.job.getBuilds()) {
+      UnleashBadgeAction badgeAction = run.getAction(UnleashBadgeAction.class);
+      if (badgeAction != null && !run.isBuilding()) {
+        rebuilt.add(new ReleaseBuildRecord(run, badgeAction));
+        numbers.add(run.getNumber());
+      }
+    }
+
+    synchronized (this) {
+      for (ReleaseBuildRecord record : this.records) {
+        if (!numbers.contains(record.getNumber()) && this.job.getBuildByNumber(record.getNumber()) != null) {
+          rebuilt.add(record);
+        }
+      }
+      rebuilt.sort(NEWEST_FIRST);
+      this.records = rebuilt;
+      this.rebuildPending = false;
+      save();
+    }
+  }
+
+  /**
+   * @return the records of all release builds of the job, newest first.
+   */
+  public synchronized List<ReleaseBuildRecord> getRecords() {
+    return ImmutableList.copyOf(this.records);
+  }
+
+  public synchronized ReleaseBuildRecord getRecord(int number) {
+    for (ReleaseBuildRecord record : this.records) {
+      if (record.getNumber() == number) {
+        return record;
+      }
+    }
+    return null;
+  }
+
+  public synchronized ReleaseBuildRecord getLastSuccessful() {
+    for (ReleaseBuildRecord record : this.records) {
+      if (record.isSuccessful()) {
+        return record;
+      }
+    }
+    return null;
+  }
+
+  public synchronized ReleaseBuildRecord getLastFailed() {
+    for (ReleaseBuildRecord record : this.records) {
+      if (record.isFailed()) {
+        return record;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Adds or replaces the record of the given release build.
+   */
+  synchronized void update(Run<?, ?> run) {
+    UnleashBadgeAction badgeAction = run.getAction(UnleashBadgeAction.class);
+    if (badgeAction == null) {
+      return;
+    }
+    removeRecord(run.getNumber());
+    this.records.add(new ReleaseBuildRecord(run, badgeAction));
+    this.records.sort(NEWEST_FIRST);
+    save();
+  }
+
+  synchronized void remove(int number) {
+    if (removeRecord(number)) {
+      save();
+    }
+  }
+
+  /**
+   * Updates the keep-log flag of a record after the flag of the build has been changed.
+   */
+  public synchronized void setKeepLog(int number, boolean keepLog) {
+    ReleaseBuildRecord record = getRecord(number);
+    if (record != null && record.isKeepLog() != keepLog) {
+      record.setKeepLog(keepLog);
+      save();
+    }
+  }
+
+  private boolean removeRecord(int number) {
+    return this.records.removeIf(record -> record.getNumber() == number);
+  }
+
+  private void save() {
+    if (this.rebuildPending) {
+      return;
+    }
+    try {
+      getFile(this.job).write(this);
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Could not save the release build index of " + this.job.getFullName(), e);
+    }
+  }
+}
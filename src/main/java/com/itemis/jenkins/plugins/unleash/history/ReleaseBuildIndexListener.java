@@ -0,0 +1,107 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash.history;
+
+import com.itemis.jenkins.plugins.unleash.UnleashBadgeAction;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.Saveable;
+import hudson.model.TaskListener;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import hudson.model.listeners.SaveableListener;
+
+/**
+ * Keeps the {@link ReleaseBuildIndex} of a job, the {@link LastReleases} and the {@link ReleaseVersionIndex} up to
+ * date when release builds complete or get deleted and triggers the {@link ReleaseRetention} after successful releases.
+ */
+@Extension
+public class ReleaseBuildIndexListener extends RunListener<Run<?, ?>> {
+  @Override
+  public void onCompleted(Run<?, ?> run, @NonNull TaskListener listener) {
+    if (run.getAction(UnleashBadgeAction.class) != null) {
+      ReleaseBuildIndex index = ReleaseBuildIndex.of(run.getParent());
+      index.update(run);
+      LastReleases.get().update(run.getParent());
+      ReleaseVersionIndex.get().update(run, index.getRecord(run.getNumber()));
+      Result result = run.getResult();
+      if (result != null && result.isBetterOrEqualTo(Result.UNSTABLE)) {
+        ReleaseRetention.schedule(run.getParent());
+      }
+    }
+  }
+
+  @Override
+  public void onDeleted(Run<?, ?> run) {
+    if (run.getAction(UnleashBadgeAction.class) != null) {
+      ReleaseBuildIndex.of(run.getParent()).remove(run.getNumber());
+      LastReleases.get().update(run.getParent());
+      ReleaseVersionIndex.get().remove(run);
+    }
+  }
+
+  /**
+   * Keeps the keep-log flag of the indexed release builds in sync, f.i. when a user toggles "keep this build forever".
+   * Toggling the flag only saves the build, no {@link RunListener} event is fired for it.
+   */
+  @Extension
+  public static class KeepLogListener extends SaveableListener {
+    @Override
+    public void onChange(Saveable o, XmlFile file) {
+      if (o instanceof Run<?, ?> run && !run.isBuilding() && run.getAction(UnleashBadgeAction.class) != null) {
+        ReleaseBuildIndex.of(run.getParent()).setKeepLog(run.getNumber(), run.isKeepLog());
+      }
+    }
+  }
+
+  @Extension
+  public static class JobListener extends ItemListener {
+    @Override
+    public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+      // the index is bound to the job directory which has moved, the next access reloads it from the new location
+      if (item instanceof Job<?, ?> job) {
+        ReleaseBuildIndex.forget(job);
+        LastReleases.get().rename(oldFullName, newFullName);
+        ReleaseVersionIndex.get().rename(oldFullName, newFullName);
+        ReleaseRetention.forget(oldFullName);
+      }
+    }
+
+    @Override
+    public void onDeleted(Item item) {
+      if (item instanceof Job<?, ?> job) {
+        ReleaseBuildIndex.forget(job);
+        LastReleases.get().remove(job.getFullName());
+        ReleaseVersionIndex.get().remove(job.getFullName());
+        ReleaseRetention.forget(job.getFullName());
+      }
+    }
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash.history;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import com.google.common.collect.Maps;
+import com.itemis.jenkins.plugins.unleash.UnleashArgumentsAction;
+import com.itemis.jenkins.plugins.unleash.UnleashBadgeAction;
+
+import hudson.model.Result;
+import hudson.model.Run;
+
+/**
+ * A compact summary of a single release build that can be evaluated without loading the build itself.
+ */
+@ExportedBean
+public class ReleaseBuildRecord {
+  private final int number;
+
+  private final String result;
+
+  private final String version;
+
+  private final long startTime;
+
+  private final long duration;
+
+  private boolean keepLog;
+
+  private final String tagNamePattern;
+
+  private final boolean useGlobalVersion;
+
+  private final String requestedReleaseVersion;
+
+  private final String requestedDevelopmentVersion;
+
+  private final Map<String, String> moduleVersions;
+
+  ReleaseBuildRecord(Run<?, ?> run, UnleashBadgeAction badgeAction) {
+    this.number = run.getNumber();
+    Result runResult = run.getResult();
+    this.result = runResult != null ? runResult.toString() : null;
+    this.version = badgeAction.getVersion();
+    this.startTime = run.getStartTimeInMillis();
+    this.duration = run.getDuration();
+    this.keepLog = run.isKeepLog();
+    this.moduleVersions = badgeAction.getModuleVersions().isEmpty() ? null
+        : Maps.newLinkedHashMap(badgeAction.getModuleVersions());
+    UnleashArgumentsAction arguments = run.getAction(UnleashArgumentsAction.class);
+    if (arguments != null) {
+      this.tagNamePattern = arguments.getTagNamePattern();
+      this.useGlobalVersion = arguments.useGlobalReleaseVersion();
+      this.requestedReleaseVersion = arguments.getGlobalReleaseVersion();
+      this.requestedDevelopmentVersion = arguments.getGlobalDevelopmentVersion();
+    } else {
+      this.tagNamePattern = null;
+      this.useGlobalVersion = false;
+      this.requestedReleaseVersion = null;
+      this.requestedDevelopmentVersion = null;
+    }
+  }
+
+  @Exported
+  public int getNumber() {
+    return this.number;
+  }
+
+  @Exported
+  public Result getResult() {
+    return this.result != null ? Result.fromString(this.result) : null;
+  }
+
+  @Exported
+  public String getVersion() {
+    return this.version;
+  }
+
+  @Exported
+  public long getStartTime() {
+    return this.startTime;
+  }
+
+  @Exported
+  public long getDuration() {
+    return this.duration;
+  }
+
+  @Exported
+  public boolean isKeepLog() {
+    return this.keepLog;
+  }
+
+  @Exported
+  public String getTagNamePattern() {
+    return this.tagNamePattern;
+  }
+
+  /**
+   * @return {@code true} if the versions were specified globally for all modules when the release was requested.
+   */
+  @Exported
+  public boolean isUseGlobalVersion() {
+    return this.useGlobalVersion;
+  }
+
+  @Exported
+  public String getRequestedReleaseVersion() {
+    return this.requestedReleaseVersion;
+  }
+
+  @Exported
+  public String getRequestedDevelopmentVersion() {
+    return this.requestedDevelopmentVersion;
+  }
+
+  /**
+   * @return the released versions of the modules by their {@code groupId:artifactId}, empty for releases of older
+   *         versions of the plugin.
+   */
+  public Map<String, String> getModuleVersions() {
+    return this.moduleVersions != null ? Collections.unmodifiableMap(this.moduleVersions) : Collections.emptyMap();
+  }
+
+  void setKeepLog(boolean keepLog) {
+    this.keepLog = keepLog;
+  }
+
+  /**
+   * @return {@code true} if the release build was successful or unstable.
+   */
+  public boolean isSuccessful() {
+    Result r = getResult();
+    return r != null && r.isBetterOrEqualTo(Result.UNSTABLE);
+  }
+
+  public boolean isFailed() {
+    Result r = getResult();
+    return r != null && r.isWorseOrEqualTo(Result.FAILURE);
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash.history;
+
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.Stapler;
+import org.kohsuke.stapler.StaplerRequest2;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+import org.kohsuke.stapler.verb.POST;
+
+import com.google.common.collect.Lists;
+
+import hudson.model.Api;
+import hudson.model.Computer;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.Result;
+
+/**
+ * The release history of a job which is exposed under {@code <job>/unleash/history/api/}. The history is served from
+ * the {@link ReleaseBuildIndex} so that no builds need to be loaded.<br>
+ * The following query parameters are evaluated on the server:
+ * <ul>
+ * <li>{@code versionPrefix}: only releases whose version starts with the given prefix</li>
+ * <li>{@code result}: only releases with the given result, f.i. {@code SUCCESS} or {@code FAILURE}</li>
+ * <li>{@code start}: the number of matching releases to skip (default: {@code 0})</li>
+ * <li>{@code limit}: the maximum number of releases to return (default: {@value #DEFAULT_LIMIT})</li>
+ * </ul>
+ * The index can be rebuilt from the build history by posting to {@code <job>/unleash/history/rebuild}.
+ */
+@ExportedBean
+public class ReleaseHistory {
+  public static final int DEFAULT_LIMIT = 100;
+
+  public static final int MAX_LIMIT = 1000;
+
+  private final Job<?, ?> job;
+
+  private transient Page page;
+
+  public ReleaseHistory(Job<?, ?> job) {
+    this.job = job;
+  }
+
+  public Api getApi() {
+    return new Api(this);
+  }
+
+  public Job<?, ?> getJob() {
+    return this.job;
+  }
+
+  /**
+   * @return the releases matching the filter of the current request, newest first.
+   */
+  @Exported(inline = true)
+  public List<ReleaseBuildRecord> getReleases() {
+    return getPage().releases;
+  }
+
+  /**
+   * @return the number of releases matching the filter of the current request regardless of paging.
+   */
+  @Exported
+  public int getTotal() {
+    return getPage().total;
+  }
+
+  @Exported
+  public int getStart() {
+    return getPage().start;
+  }
+
+  /**
+   * Rebuilds the release build index of the job in the background. This loads all builds of the job.
+   */
+  @POST
+  public HttpResponse doRebuild() {
+    this.job.checkPermission(Item.CONFIGURE);
+    Computer.threadPoolForRemoting.submit(() -> ReleaseBuildIndex.of(this.job).rebuild());
+    return HttpResponses.redirectToDot();
+  }
+
+  private synchronized Page getPage() {
+    if (this.page == null) {
+      StaplerRequest2 request = Stapler.getCurrentRequest2();
+      if (request == null) {
+        this.page = filter(null, null, 0, DEFAULT_LIMIT);
+      } else {
+        this.page = filter(request.getParameter("versionPrefix"), request.getParameter("result"),
+            parseInt(request.getParameter("start"), 0), parseInt(request.getParameter("limit"), DEFAULT_LIMIT));
+      }
+    }
+    return this.page;
+  }
+
+  private Page filter(String versionPrefix, String result, int start, int limit) {
+    Result expectedResult = StringUtils.isBlank(result) ? null : Result.fromString(result.trim());
+    start = Math.max(0, start);
+    limit = Math.min(Math.max(0, limit), MAX_LIMIT);
+
+    List<ReleaseBuildRecord> releases = Lists.newArrayList();
+    int total = 0;
+    for (ReleaseBuildRecord record : ReleaseBuildIndex.of(this.job).getRecords()) {
+      if (StringUtils.isNotEmpty(versionPrefix) && !StringUtils.startsWith(record.getVersion(), versionPrefix)) {
+        continue;
+      }
+      if (expectedResult != null && expectedResult != record.getResult()) {
+        continue;
+      }
+      if (total >= start && releases.size() < limit) {
+        releases.add(record);
+      }
+      total++;
+    }
+    return new Page(start, total, releases);
+  }
+
+  private static int parseInt(String value, int defaultValue) {
+    if (StringUtils.isBlank(value)) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+
+  private static final class Page {
+    private final int start;
+
+    private final int total;
+
+    private final List<ReleaseBuildRecord> releases;
+
+    Page(int start, int total, List<ReleaseBuildRecord> releases) {
+      this.start = start;
+      this.total = total;
+      this.releases = releases;
+    }
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash.history;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.itemis.jenkins.plugins.unleash.UnleashMavenBuildWrapper;
+
+import hudson.model.BuildableItemWithBuildWrappers;
+import hudson.model.Computer;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import jenkins.model.Jenkins;
+import jenkins.util.AtmostOneTaskExecutor;
+
+/**
+ * Applies the lock settings of the Unleash build wrapper ({@code numberOfBuildsToLock}) to the release builds of a
+ * job in the background.<br>
+ * Concurrent requests for the same job are coalesced and only builds whose keep-log flag actually changes are
+ * loaded and saved.
+ */
+public final class ReleaseRetention {
+  private static final Logger LOGGER = Logger.getLogger(ReleaseRetention.class.getName());
+
+  private static final Map<String, AtmostOneTaskExecutor<Void>> EXECUTORS = new ConcurrentHashMap<>();
+
+  private ReleaseRetention() {
+    // utility class
+  }
+
+  /**
+   * Schedules the retention of the release builds of the given job.
+   */
+  public static void schedule(Job<?, ?> job) {
+    EXECUTORS.computeIfAbsent(job.getFullName(),
+        fullName -> new AtmostOneTaskExecutor<>(Computer.threadPoolForRemoting, () -> {
+          // the job is looked up on each run since it might have been recreated in the meantime
+          try (ACLContext context = ACL.as2(ACL.SYSTEM2)) {
+            apply(Jenkins.get().getItemByFullName(fullName, Job.class));
+          }
+          return null;
+        })).submit();
+  }
+
+  /**
+   * Drops the executor of the job, f.i. after the job has been renamed or deleted.
+   */
+  static void forget(String fullName) {
+    EXECUTORS.remove(fullName);
+  }
+
+  private static void apply(Job<?, ?> job) {
+    if (!(job instanceof BuildableItemWithBuildWrappers)) {
+      return;
+    }
+    UnleashMavenBuildWrapper wrapper = ((BuildableItemWithBuildWrappers) job).getBuildWrappersList()
+        .get(UnleashMavenBuildWrapper.class);
+    if (wrapper == null) {
+      return;
+    }
+
+    int numberOfBuildsToLock = wrapper.getNumberOfBuildsToLock();
+    int lockedBuilds = 0;
+    ReleaseBuildIndex index = ReleaseBuildIndex.of(job);
+    for (ReleaseBuildRecord record : index.getRecords()) {
+      if (!record.isSuccessful()) {
+        continue;
+      }
+
+      boolean keepLog = numberOfBuildsToLock < 0 || lockedBuilds < numberOfBuildsToLock;
+      if (keepLog) {
+        lockedBuilds++;
+      }
+      if (record.isKeepLog() == keepLog) {
+        continue;
+      }
+
+      Run<?, ?> run = job.getBuildByNumber(record.getNumber());
+      if (run == null) {
+        continue;
+      }
+      try {
+        if (run.isKeepLog() != keepLog) {
+          run.keepLog(keepLog);
+        }
+        index.setKeepLog(record.getNumber(), keepLog);
+      } catch (IOException e) {
+        LOGGER.log(Level.WARNING, "Could not update the keep-log flag of " + run, e);
+      }
+    }
+  }
+}
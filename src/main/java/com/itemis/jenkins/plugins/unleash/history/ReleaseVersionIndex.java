@@ -0,0 +1,274 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Lists;
+
+import hudson.XmlFile;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.maven.MavenModule;
+import hudson.maven.MavenModuleSet;
+import hudson.model.Computer;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.util.XStream2;
+import jenkins.model.Jenkins;
+import jenkins.util.AtmostOneTaskExecutor;
+
+/**
+ * A controller-wide map from released artifact coordinates ({@code groupId:artifactId:version}) to the build that
+ * released them. All modules of a release are indexed with the versions recorded in the
+ * {@link com.itemis.jenkins.plugins.unleash.UnleashBadgeAction}. Releases of older versions of the plugin only
+ * recorded a single version which is indexed for the root module of the job.<br>
+ * The index is maintained by the {@link ReleaseBuildIndexListener} and filled once from the {@link ReleaseBuildIndex}
+ * of all jobs in the background if it doesn't exist yet.
+ */
+public final class ReleaseVersionIndex {
+  private static final Logger LOGGER = Logger.getLogger(ReleaseVersionIndex.class.getName());
+
+  private static final String FILE_NAME = "unleash-release-versions.xml";
+
+  private static final XStream2 XSTREAM = new XStream2();
+
+  static {
+    XSTREAM.alias("releaseVersionIndex", ReleaseVersionIndex.class);
+    XSTREAM.alias("build", BuildLocation.class);
+  }
+
+  private static volatile ReleaseVersionIndex instance;
+
+  private final Map<String, BuildLocation> builds = new ConcurrentHashMap<>();
+
+  private volatile boolean backfilled;
+
+  private transient AtmostOneTaskExecutor<Void> saver;
+
+  private ReleaseVersionIndex() {
+    readResolve();
+  }
+
+  private Object readResolve() {
+    this.saver = new AtmostOneTaskExecutor<>(Computer.threadPoolForRemoting, () -> {
+      saveNow();
+      return null;
+    });
+    return this;
+  }
+
+  public static ReleaseVersionIndex get() {
+    ReleaseVersionIndex index = instance;
+    if (index == null) {
+      synchronized (ReleaseVersionIndex.class) {
+        index = instance;
+        if (index == null) {
+          index = load();
+          instance = index;
+        }
+      }
+    }
+    return index;
+  }
+
+  private static ReleaseVersionIndex load() {
+    XmlFile file = getFile();
+    if (file.exists()) {
+      try {
+        return (ReleaseVersionIndex) file.read();
+      } catch (IOException | RuntimeException e) {
+        LOGGER.log(Level.WARNING, "Could not load the release version index, it will be rebuilt.", e);
+      }
+    }
+    return new ReleaseVersionIndex();
+  }
+
+  private static XmlFile getFile() {
+    return new XmlFile(XSTREAM, new File(Jenkins.get().getRootDir(), FILE_NAME));
+  }
+
+  @Initializer(after = InitMilestone.JOBS_LOADED)
+  public static void backfillIfNecessary() {
+    final ReleaseVersionIndex index = get();
+    if (!index.backfilled) {
+      Computer.threadPoolForRemoting.submit(index::backfill);
+    }
+  }
+
+  /**
+   * Fills the index from the release build indexes of all jobs. Entries recorded in the meantime are kept.
+   */
+  private void backfill() {
+    for (MavenModuleSet job : Jenkins.get().allItems(MavenModuleSet.class)) {
+      String rootCoordinates = getCoordinates(job);
+      try {
+        // the records are ordered newest first, the newest release of a version wins
+        for (ReleaseBuildRecord record : ReleaseBuildIndex.of(job).getRecords()) {
+          if (record.isSuccessful()) {
+            BuildLocation location = new BuildLocation(job.getFullName(), record.getNumber());
+            for (String key : getKeys(record, rootCoordinates)) {
+              this.builds.putIfAbsent(key, location);
+            }
+          }
+        }
+      } catch (RuntimeException e) {
+        LOGGER.log(Level.WARNING, "Could not index the releases of " + job.getFullName() + ".", e);
+      }
+    }
+    this.backfilled = true;
+    save();
+  }
+
+  /**
+   * @return the build that released the given version or {@code null} if no such release is known.
+   */
+  public BuildLocation getBuild(String groupId, String artifactId, String version) {
+    return this.builds.get(key(groupId + ':' + artifactId, version));
+  }
+
+  /**
+   * Records the given release build if it was successful.
+   */
+  void update(Run<?, ?> run, ReleaseBuildRecord record) {
+    if (record == null || !record.isSuccessful()) {
+      return;
+    }
+    BuildLocation location = new BuildLocation(run.getParent().getFullName(), run.getNumber());
+    boolean changed = false;
+    for (String key : getKeys(record, getCoordinates(run.getParent()))) {
+      changed |= !location.equals(this.builds.put(key, location));
+    }
+    if (changed) {
+      save();
+    }
+  }
+
+  void remove(Run<?, ?> run) {
+    BuildLocation location = new BuildLocation(run.getParent().getFullName(), run.getNumber());
+    if (this.builds.values().removeIf(location::equals)) {
+      save();
+    }
+  }
+
+  void rename(String oldFullName, String newFullName) {
+    boolean changed = false;
+    for (Map.Entry<String, BuildLocation> entry : this.builds.entrySet()) {
+      BuildLocation location = entry.getValue();
+      if (location.getJobFullName().equals(oldFullName)) {
+        entry.setValue(new BuildLocation(newFullName, location.getNumber()));
+        changed = true;
+      }
+    }
+    if (changed) {
+      save();
+    }
+  }
+
+  void remove(String jobFullName) {
+    if (this.builds.values().removeIf(location -> location.getJobFullName().equals(jobFullName))) {
+      save();
+    }
+  }
+
+  private static String getCoordinates(Job<?, ?> job) {
+    if (job instanceof MavenModuleSet mavenModuleSet) {
+      MavenModule rootModule = mavenModuleSet.getRootModule();
+      if (rootModule != null) {
+        return rootModule.getModuleName().toString();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the keys of all artifacts released by the given release build.
+   */
+  private static List<String> getKeys(ReleaseBuildRecord record, String rootCoordinates) {
+    List<String> keys = Lists.newArrayList();
+    for (Map.Entry<String, String> moduleVersion : record.getModuleVersions().entrySet()) {
+      keys.add(key(moduleVersion.getKey(), moduleVersion.getValue()));
+    }
+    if (keys.isEmpty() && rootCoordinates != null && record.getVersion() != null) {
+      keys.add(key(rootCoordinates, record.getVersion()));
+    }
+    return keys;
+  }
+
+  private static String key(String coordinates, String version) {
+    return coordinates + ':' + version;
+  }
+
+  private void save() {
+    this.saver.submit();
+  }
+
+  private synchronized void saveNow() {
+    try {
+      getFile().write(this);
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Could not save the release version index.", e);
+    }
+  }
+
+  public static final class BuildLocation {
+    private final String jobFullName;
+
+    private final int number;
+
+    BuildLocation(String jobFullName, int number) {
+      this.jobFullName = jobFullName;
+      this.number = number;
+    }
+
+    public String getJobFullName() {
+      return this.jobFullName;
+    }
+
+    public int getNumber() {
+      return this.number;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof BuildLocation)) {
+        return false;
+      }
+      BuildLocation other = (BuildLocation) obj;
+      return this.number == other.number && Objects.equal(this.jobFullName, other.jobFullName);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(this.jobFullName, this.number);
+    }
+  }
+}
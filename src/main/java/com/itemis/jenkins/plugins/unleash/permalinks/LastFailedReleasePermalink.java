@@ -24,7 +24,10 @@
 package com.itemis.jenkins.plugins.unleash.permalinks;
 
 import com.itemis.jenkins.plugins.unleash.UnleashBadgeAction;
+import com.itemis.jenkins.plugins.unleash.history.LastReleases;
+import com.itemis.jenkins.plugins.unleash.history.ReleaseBuildRecord;
 
+import hudson.model.Job;
 import hudson.model.Run;
 import hudson.model.PermalinkProjectAction.Permalink;
 import jenkins.model.PeepholePermalink;
@@ -47,6 +50,15 @@ public class LastFailedReleasePermalink extends PeepholePermalink {
     return false;
   }
 
+  /**
+   * Resolves the build from the {@link LastReleases} so that only the resolved build gets loaded.
+   */
+  @Override
+  public Run<?, ?> resolve(Job<?, ?> job) {
+    ReleaseBuildRecord record = LastReleases.get().getLastFailed(job);
+    return record != null ? job.getBuildByNumber(record.getNumber()) : null;
+  }
+
   @Override
   public String getDisplayName() {
     return "Last Failed Release Build";
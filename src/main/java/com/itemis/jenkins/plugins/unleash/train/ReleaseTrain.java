@@ -0,0 +1,375 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash.train;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.itemis.jenkins.plugins.unleash.UnleashArgumentsAction;
+import com.itemis.jenkins.plugins.unleash.UnleashBadgeAction;
+import com.itemis.jenkins.plugins.unleash.UnleashCause;
+import com.itemis.jenkins.plugins.unleash.UnleashMavenBuildWrapper;
+import com.itemis.jenkins.plugins.unleash.util.MavenUtil;
+
+import hudson.Util;
+import hudson.maven.MavenModuleSet;
+import hudson.model.Action;
+import hudson.model.CauseAction;
+import hudson.model.ParameterDefinition;
+import hudson.model.ParameterValue;
+import hudson.model.ParametersAction;
+import hudson.model.ParametersDefinitionProperty;
+import hudson.model.Queue;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.queue.QueueTaskFuture;
+import jenkins.model.Jenkins;
+import jenkins.util.Timer;
+
+/**
+ * Releases a set of jobs in the order of the dependencies between them. A job is released as soon as all jobs it
+ * depends on have been released successfully, so independent jobs are released in parallel and the duration of the
+ * train approaches its critical path. The release builds of downstream jobs use the versions released by the upstream
+ * jobs (see {@link ReleaseTrainVersionsAction}).<br>
+ * The train is not persisted; scheduled release builds continue after a restart of Jenkins but no further jobs are
+ * released.
+ */
+public final class ReleaseTrain {
+  private static final Logger LOGGER = Logger.getLogger(ReleaseTrain.class.getName());
+
+  private static final long POLL_INTERVAL_SECONDS = 5;
+
+  public enum State {
+    WAITING, QUEUED, SUCCESS, FAILURE, SKIPPED, CANCELLED
+  }
+
+  private final List<Car> cars;
+
+  private final long startTime = System.currentTimeMillis();
+
+  /**
+   * The released versions of the modules of all successfully released jobs, keyed by {@code groupId:artifactId}.
+   */
+  private final Map<String, String> releasedVersions = Maps.newConcurrentMap();
+
+  private transient ScheduledFuture<?> poller;
+
+  private ReleaseTrain(List<Car> cars) {
+    this.cars = ImmutableList.copyOf(cars);
+  }
+
+  /**
+   * Plans a train for the passed jobs.
+   *
+   * @throws IllegalArgumentException if the jobs depend on each other cyclically.
+   */
+  public static ReleaseTrain plan(Collection<MavenModuleSet> projects) {
+    Map<MavenModuleSet, Set<MavenModuleSet>> upstreamProjects = MavenUtil.getUpstreamProjects(projects);
+    Map<MavenModuleSet, Car> cars = Maps.newLinkedHashMap();
+    for (MavenModuleSet project : upstreamProjects.keySet()) {
+      getCar(project, upstreamProjects, cars, Lists.<MavenModuleSet> newArrayList());
+    }
+    List<Car> sorted = Lists.newArrayList(cars.values());
+    sorted.sort((c1, c2) -> c1.level != c2.level ? Integer.compare(c1.level, c2.level)
+        : c1.project.getFullName().compareTo(c2.project.getFullName()));
+    return new ReleaseTrain(sorted);
+  }
+
+  private static Car getCar(MavenModuleSet project, Map<MavenModuleSet, Set<MavenModuleSet>> upstreamProjects,
+      Map<MavenModuleSet, Car> cars, List<MavenModuleSet> path) {
+    Car car = cars.get(project);
+    if (car != null) {
+      return car;
+    }
+    if (path.contains(project)) {
+      List<String> cycle = Lists.newArrayList();
+      for (MavenModuleSet member : path.subList(path.indexOf(project), path.size())) {
+        cycle.add(member.getFullName());
+      }
+      cycle.add(project.getFullName());
+      throw new IllegalArgumentException("The jobs depend on each other cyclically: " + String.join(" -> ", cycle));
+    }
+
+    path.add(project);
+    List<Car> upstreamCars = Lists.newArrayList();
+    int level = 0;
+    for (MavenModuleSet upstream : upstreamProjects.get(project)) {
+      Car upstreamCar = getCar(upstream, upstreamProjects, cars, path);
+      upstreamCars.add(upstreamCar);
+      level = Math.max(level, upstreamCar.level + 1);
+    }
+    path.remove(path.size() - 1);
+
+    car = new Car(project, upstreamCars, level);
+    cars.put(project, car);
+    return car;
+  }
+
+  public List<Car> getCars() {
+    return this.cars;
+  }
+
+  public long getStartTime() {
+    return this.startTime;
+  }
+
+  public String getDurationString() {
+    return Util.getTimeSpanString(System.currentTimeMillis() - this.startTime);
+  }
+
+  /**
+   * @return the number of levels of the train, which is the length of its critical path in jobs.
+   */
+  public int getLevels() {
+    int levels = 0;
+    for (Car car : this.cars) {
+      levels = Math.max(levels, car.level + 1);
+    }
+    return levels;
+  }
+
+  public synchronized boolean isFinished() {
+    for (Car car : this.cars) {
+      if (car.state == State.WAITING || car.state == State.QUEUED) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  synchronized void start() {
+    this.poller = Timer.get().scheduleWithFixedDelay(this::advanceSafely, 0, POLL_INTERVAL_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Cancels the jobs that haven't been scheduled yet. Release builds that are queued or running are not aborted; the
+   * train keeps polling them until they are finished.
+   */
+  synchronized void cancel() {
+    for (Car car : this.cars) {
+      if (car.state == State.WAITING) {
+        car.state = State.CANCELLED;
+      }
+    }
+  }
+
+  private void advanceSafely() {
+    try {
+      advance();
+    } catch (RuntimeException e) {
+      LOGGER.log(Level.WARNING, "Could not advance the release train.", e);
+    }
+  }
+
+  private synchronized void advance() {
+    for (Car car : this.cars) {
+      if (car.state == State.QUEUED) {
+        car.checkBuild();
+        if (car.state == State.SUCCESS) {
+          this.releasedVersions.putAll(car.getReleasedVersions());
+        }
+      }
+    }
+    for (Car car : this.cars) {
+      if (car.state != State.WAITING) {
+        continue;
+      }
+      State upstreamState = car.getUpstreamState();
+      if (upstreamState == State.SUCCESS) {
+        car.schedule(this.releasedVersions);
+      } else if (upstreamState != State.WAITING) {
+        car.state = State.SKIPPED;
+      }
+    }
+    if (isFinished()) {
+      stopPolling();
+    }
+  }
+
+  private void stopPolling() {
+    if (this.poller != null) {
+      this.poller.cancel(false);
+    }
+  }
+
+  /**
+   * A job of the train.
+   */
+  public static final class Car {
+    private final MavenModuleSet project;
+
+    private final List<Car> upstreamCars;
+
+    private final int level;
+
+    private volatile State state = State.WAITING;
+
+    private volatile String message;
+
+    private QueueTaskFuture<?> future;
+
+    private volatile Run<?, ?> build;
+
+    Car(MavenModuleSet project, List<Car> upstreamCars, int level) {
+      this.project = project;
+      this.upstreamCars = upstreamCars;
+      this.level = level;
+    }
+
+    public MavenModuleSet getProject() {
+      return this.project;
+    }
+
+    /**
+     * @return the level of the job in the dependency graph, {@code 0} if the job doesn't depend on another job of the
+     *         train.
+     */
+    public int getLevel() {
+      return this.level;
+    }
+
+    public List<MavenModuleSet> getUpstreamProjects() {
+      List<MavenModuleSet> projects = Lists.newArrayList();
+      for (Car car : this.upstreamCars) {
+        projects.add(car.project);
+      }
+      return projects;
+    }
+
+    public State getState() {
+      return this.state;
+    }
+
+    public String getMessage() {
+      return this.message;
+    }
+
+    public Run<?, ?> getBuild() {
+      return this.build;
+    }
+
+    /**
+     * @return the versions of the modules released by the finished release build, which were calculated from the POMs
+     *         checked out by the build, keyed by {@code groupId:artifactId}.
+     */
+    private Map<String, String> getReleasedVersions() {
+      UnleashBadgeAction badge = this.build != null ? this.build.getAction(UnleashBadgeAction.class) : null;
+      return badge != null ? badge.getModuleVersions() : Collections.<String, String> emptyMap();
+    }
+
+    private State getUpstreamState() {
+      State result = State.SUCCESS;
+      for (Car upstream : this.upstreamCars) {
+        switch (upstream.state) {
+          case SUCCESS:
+            break;
+          case WAITING:
+          case QUEUED:
+            result = State.WAITING;
+            break;
+          default:
+            return State.SKIPPED;
+        }
+      }
+      return result;
+    }
+
+    private void schedule(Map<String, String> releasedVersions) {
+      UnleashMavenBuildWrapper wrapper = this.project.getBuildWrappersList().get(UnleashMavenBuildWrapper.class);
+      if (wrapper == null || !this.project.isBuildable()) {
+        this.state = State.FAILURE;
+        this.message = "The job can't be released.";
+        return;
+      }
+
+      UnleashArgumentsAction arguments = new UnleashArgumentsAction();
+      arguments.setAllowLocalReleaseArtifacts(wrapper.isPreselectAllowLocalReleaseArtifacts());
+      arguments.setCommitBeforeTagging(wrapper.isPreselectCommitBeforeTagging());
+      arguments.setTagNamePattern(wrapper.getTagNamePattern());
+      arguments.setScmMessagePrefix(wrapper.getScmMessagePrefix());
+
+      List<Action> actions = Lists.newArrayList(new CauseAction(new UnleashCause()), arguments,
+          new ReleaseTrainVersionsAction(releasedVersions));
+      ParametersAction parameters = getDefaultParameters();
+      if (parameters != null) {
+        actions.add(parameters);
+      }
+      Queue.ScheduleResult result = Jenkins.get().getQueue().schedule2(this.project, 0, actions);
+      if (result.getItem() == null) {
+        this.state = State.FAILURE;
+        this.message = "The release build could not be scheduled.";
+        return;
+      }
+      if (!result.isCreated()) {
+        // the build would be adopted without the versions of the train
+        this.state = State.FAILURE;
+        this.message = "The release build was folded into a build of the job that was already queued.";
+        return;
+      }
+      this.future = result.getItem().getFuture();
+      this.state = State.QUEUED;
+    }
+
+    private ParametersAction getDefaultParameters() {
+      ParametersDefinitionProperty property = this.project.getProperty(ParametersDefinitionProperty.class);
+      if (property == null) {
+        return null;
+      }
+      List<ParameterValue> values = Lists.newArrayList();
+      for (ParameterDefinition definition : property.getParameterDefinitions()) {
+        ParameterValue value = definition.getDefaultParameterValue();
+        if (value != null) {
+          values.add(value);
+        }
+      }
+      return new ParametersAction(values);
+    }
+
+    private void checkBuild() {
+      if (this.build == null && this.future.getStartCondition().isDone()) {
+        try {
+          this.build = (Run<?, ?>) this.future.getStartCondition().get();
+        } catch (Exception e) {
+          this.state = State.FAILURE;
+          this.message = "The release build was cancelled.";
+          return;
+        }
+      }
+      if (this.future.isDone()) {
+        Result result = this.build != null ? this.build.getResult() : null;
+        this.state = result != null && result.isBetterOrEqualTo(Result.SUCCESS) ? State.SUCCESS : State.FAILURE;
+      }
+    }
+  }
+}
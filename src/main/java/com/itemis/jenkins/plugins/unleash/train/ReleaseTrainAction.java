@@ -0,0 +1,168 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash.train;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.StaplerRequest2;
+import org.kohsuke.stapler.verb.POST;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.itemis.jenkins.plugins.unleash.UnleashAction;
+import com.itemis.jenkins.plugins.unleash.UnleashMavenBuildWrapper;
+
+import hudson.Extension;
+import hudson.maven.MavenModuleSet;
+import hudson.model.Action;
+import hudson.model.Item;
+import hudson.model.TopLevelItem;
+import hudson.model.TransientViewActionFactory;
+import hudson.model.View;
+
+/**
+ * Releases the Unleash jobs of a view as a {@link ReleaseTrain}. The page of the action shows the planned order of
+ * the releases and the progress of the running train.
+ */
+public class ReleaseTrainAction implements Action {
+  /**
+   * The last train of each view, keyed by the URL of the view.
+   */
+  private static final Map<String, ReleaseTrain> TRAINS = Maps.newConcurrentMap();
+
+  private final View view;
+
+  public ReleaseTrainAction(View view) {
+    this.view = view;
+  }
+
+  @Override
+  public String getIconFileName() {
+    return getProjects().isEmpty() ? null : "/plugin/unleash/img/unleash.png";
+  }
+
+  @Override
+  public String getDisplayName() {
+    return "Release Train";
+  }
+
+  @Override
+  public String getUrlName() {
+    return "unleashTrain";
+  }
+
+  public View getView() {
+    return this.view;
+  }
+
+  /**
+   * @return the jobs of the view the current user may release.
+   */
+  public List<MavenModuleSet> getProjects() {
+    List<MavenModuleSet> projects = Lists.newArrayList();
+    for (TopLevelItem item : this.view.getItems()) {
+      if (item instanceof MavenModuleSet project
+          && project.getBuildWrappersList().get(UnleashMavenBuildWrapper.class) != null
+          && project.hasPermission(UnleashAction.RELEASE_PERMISSION)) {
+        projects.add(project);
+      }
+    }
+    return projects;
+  }
+
+  /**
+   * @return the train of this view or {@code null} if no train has been started since Jenkins was started.
+   */
+  public ReleaseTrain getTrain() {
+    return TRAINS.get(this.view.getUrl());
+  }
+
+  /**
+   * @return the train that would be started with the current jobs of the view.
+   */
+  public ReleaseTrain getPlan() {
+    return ReleaseTrain.plan(getProjects());
+  }
+
+  /**
+   * Starts a train releasing the selected jobs ({@code job} parameters) unless a train of this view is still running.
+   */
+  @POST
+  public HttpResponse doStart(StaplerRequest2 req) {
+    this.view.checkPermission(Item.READ);
+    ReleaseTrain train = getTrain();
+    if (train != null && !train.isFinished()) {
+      return HttpResponses.errorWithoutStack(409, "A release train of this view is still running.");
+    }
+
+    String[] selection = req.getParameterValues("job");
+    List<String> selectedJobs = selection != null ? Lists.newArrayList(selection) : Collections.<String> emptyList();
+    List<MavenModuleSet> projects = Lists.newArrayList();
+    for (MavenModuleSet project : getProjects()) {
+      if (selectedJobs.contains(project.getFullName())) {
+        project.checkPermission(UnleashAction.RELEASE_PERMISSION);
+        projects.add(project);
+      }
+    }
+    if (projects.isEmpty()) {
+      return HttpResponses.errorWithoutStack(400, "No jobs have been selected for the release train.");
+    }
+
+    try {
+      train = ReleaseTrain.plan(projects);
+    } catch (IllegalArgumentException e) {
+      return HttpResponses.errorWithoutStack(409, e.getMessage());
+    }
+    TRAINS.put(this.view.getUrl(), train);
+    train.start();
+    return HttpResponses.redirectToDot();
+  }
+
+  /**
+   * Stops the running train of this view. Release builds that have already been scheduled are not aborted.
+   */
+  @POST
+  public HttpResponse doCancel() {
+    ReleaseTrain train = getTrain();
+    if (train != null) {
+      for (ReleaseTrain.Car car : train.getCars()) {
+        car.getProject().checkPermission(UnleashAction.RELEASE_PERMISSION);
+      }
+      train.cancel();
+    }
+    return HttpResponses.redirectToDot();
+  }
+
+  @Extension
+  public static class Factory extends TransientViewActionFactory {
+    @Override
+    public List<Action> createFor(View view) {
+      return Collections.<Action> singletonList(new ReleaseTrainAction(view));
+    }
+  }
+}
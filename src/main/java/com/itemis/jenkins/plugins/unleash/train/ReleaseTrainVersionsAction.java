@@ -0,0 +1,71 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash.train;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import hudson.FilePath;
+import hudson.model.Action;
+import hudson.model.InvisibleAction;
+import hudson.model.Queue;
+
+/**
+ * The versions released by the upstream jobs of a {@link ReleaseTrain}, keyed by {@code groupId:artifactId}. The
+ * release build of a downstream job updates its dependencies on these artifacts from the snapshot versions to the
+ * released versions before the release starts.<br>
+ * The queue never folds a release build of a train with another queued build of the job since the other build
+ * wouldn't update its dependencies.
+ */
+public class ReleaseTrainVersionsAction extends InvisibleAction implements Queue.QueueAction {
+  private final Map<String, String> versions;
+
+  public ReleaseTrainVersionsAction(Map<String, String> versions) {
+    this.versions = ImmutableMap.copyOf(versions);
+  }
+
+  public Map<String, String> getVersions() {
+    return this.versions != null ? this.versions : Collections.<String, String> emptyMap();
+  }
+
+  @Override
+  public boolean shouldSchedule(List<Action> actions) {
+    return true;
+  }
+
+  /**
+   * Updates the passed POMs of the workspace to the released versions.
+   *
+   * @return the workspace-relative paths of the updated POMs.
+   */
+  public static List<String> updateDependencyVersions(FilePath workspace, List<String> pathsToPoms,
+      Map<String, String> versions) throws IOException, InterruptedException {
+    return workspace.act(new UpdateDependencyVersions(pathsToPoms, Maps.newHashMap(versions)));
+  }
+}
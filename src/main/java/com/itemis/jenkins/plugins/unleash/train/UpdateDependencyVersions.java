@@ -0,0 +1,136 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash.train;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import hudson.AbortException;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+/**
+ * Updates the snapshot versions of parents and dependencies of the given POMs to the versions released by the upstream
+ * jobs of a release train and returns the workspace-relative paths of the updated POMs. The POMs are edited textually
+ * to preserve their formatting. Versions referencing a property are updated by changing the property of the same POM.
+ * The update fails if a property is shared by artifacts that were released in different versions.
+ */
+final class UpdateDependencyVersions extends MasterToSlaveFileCallable<List<String>> {
+  private static final long serialVersionUID = 1L;
+
+  private static final Pattern ARTIFACT_PATTERN = Pattern
+      .compile("<(parent|dependency)>(.*?)</\\1>", Pattern.DOTALL);
+
+  private static final Pattern VERSION_PATTERN = Pattern.compile("(<version>\\s*)([^<]*?)(\\s*</version>)");
+
+  private static final Pattern PROPERTY_REFERENCE_PATTERN = Pattern.compile("\\$\\{([^}]+)\\}");
+
+  private final List<String> pathsToPoms;
+
+  private final Map<String, String> versions;
+
+  UpdateDependencyVersions(List<String> pathsToPoms, Map<String, String> versions) {
+    this.pathsToPoms = pathsToPoms;
+    this.versions = versions;
+  }
+
+  @Override
+  public List<String> invoke(File workspace, VirtualChannel channel) throws IOException, InterruptedException {
+    List<String> updated = Lists.newArrayList();
+    for (String pathToPom : this.pathsToPoms) {
+      File pom = new File(workspace, pathToPom);
+      if (!pom.isFile()) {
+        continue;
+      }
+      String content = new String(Files.readAllBytes(pom.toPath()), StandardCharsets.UTF_8);
+      String updatedContent = update(pathToPom, content);
+      if (!updatedContent.equals(content)) {
+        Files.write(pom.toPath(), updatedContent.getBytes(StandardCharsets.UTF_8));
+        updated.add(pathToPom);
+      }
+    }
+    return updated;
+  }
+
+  String update(String pathToPom, String content) throws AbortException {
+    StringBuilder result = new StringBuilder(content.length());
+    Map<String, String> properties = Maps.newHashMap();
+    Map<String, String> propertyArtifacts = Maps.newHashMap();
+    Matcher artifact = ARTIFACT_PATTERN.matcher(content);
+    int last = 0;
+    while (artifact.find()) {
+      String block = artifact.group(2);
+      String key = getValue(block, "groupId") + ":" + getValue(block, "artifactId");
+      String version = this.versions.get(key);
+      Matcher versionMatcher = VERSION_PATTERN.matcher(block);
+      if (version == null || !versionMatcher.find() || !isSnapshotOrReference(versionMatcher.group(2))) {
+        continue;
+      }
+
+      Matcher reference = PROPERTY_REFERENCE_PATTERN.matcher(versionMatcher.group(2));
+      if (reference.matches()) {
+        String name = reference.group(1);
+        String previous = properties.put(name, version);
+        if (previous != null && !previous.equals(version)) {
+          throw new AbortException("The property " + name + " of " + pathToPom + " is used for artifacts that were "
+              + "released in different versions: " + propertyArtifacts.get(name) + " (" + previous + ") and " + key
+              + " (" + version + ").");
+        }
+        propertyArtifacts.putIfAbsent(name, key);
+        continue;
+      }
+      int versionStart = artifact.start(2) + versionMatcher.start(2);
+      result.append(content, last, versionStart).append(version);
+      last = artifact.start(2) + versionMatcher.end(2);
+    }
+    result.append(content, last, content.length());
+
+    String updated = result.toString();
+    for (Map.Entry<String, String> property : properties.entrySet()) {
+      String name = Pattern.quote(property.getKey());
+      Pattern propertyPattern = Pattern.compile("(<" + name + ">\\s*)([^<]*-SNAPSHOT)(\\s*</" + name + ">)");
+      updated = propertyPattern.matcher(updated)
+          .replaceFirst("$1" + Matcher.quoteReplacement(property.getValue()) + "$3");
+    }
+    return updated;
+  }
+
+  private static boolean isSnapshotOrReference(String version) {
+    return version.endsWith("-SNAPSHOT") || PROPERTY_REFERENCE_PATTERN.matcher(version).matches();
+  }
+
+  private static String getValue(String block, String element) {
+    Matcher matcher = Pattern.compile("<" + element + ">\\s*([^<]*?)\\s*</" + element + ">").matcher(block);
+    return matcher.find() ? matcher.group(1) : null;
+  }
+}
@@ -1,17 +1,39 @@
 package com.itemis.jenkins.plugins.unleash.util;
 
+import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.maven.model.Model;
 import org.apache.maven.model.Parent;
 import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
 
+import com.google.common.base.Objects;
 import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 import hudson.FilePath;
+import hudson.Util;
 import hudson.maven.MavenModule;
 import hudson.maven.MavenModuleSet;
+import hudson.maven.ModuleDependency;
+import hudson.maven.ModuleName;
+import hudson.model.Computer;
+import hudson.model.Run;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
 
 public final class MavenUtil {
   private MavenUtil() {
@@ -23,12 +45,7 @@ public final class MavenUtil {
       return Optional.absent();
     }
 
-    String pathToPom;
-    if (mavenModuleSet.getRootModule().equals(module)) {
-      pathToPom = mavenModuleSet.getRootPOM(null);
-    } else {
-      pathToPom = module.getRelativePath() + "/pom.xml";
-    }
+    String pathToPom = getPathToPom(module, mavenModuleSet);
 
     Model model = null;
     InputStream modelIS = null;
@@ -62,4 +79,277 @@ public final class MavenUtil {
     }
     return Optional.fromNullable(version);
   }
+
+  /**
+   * Reads the coordinates of a single module POM from the workspace.
+   */
+  public static Optional<PomCoordinates> parseCoordinates(MavenModule module, MavenModuleSet mavenModuleSet) {
+    if (module == null) {
+      return Optional.absent();
+    }
+    Map<MavenModule, PomCoordinates> coordinates = parseCoordinates(Collections.singletonList(module),
+        mavenModuleSet);
+    return Optional.fromNullable(coordinates.get(module));
+  }
+
+  /**
+   * Reads the coordinates of all passed module POMs from the workspace using a single call to the agent. The
+   * coordinates are served from the {@link PomCoordinatesCache} if no build ran since they were read.
+   *
+   * @return the coordinates of all modules whose POMs could be read. Modules that could not be read are absent from
+   *         the returned map.
+   */
+  public static Map<MavenModule, PomCoordinates> parseCoordinates(Collection<MavenModule> modules,
+      MavenModuleSet mavenModuleSet) {
+    if (mavenModuleSet == null) {
+      return Collections.emptyMap();
+    }
+    return parseCoordinates(modules, mavenModuleSet, mavenModuleSet.getSomeWorkspace());
+  }
+
+  /**
+   * Reads the coordinates of all passed module POMs from the given workspace using a single call to the agent.
+   */
+  public static Map<MavenModule, PomCoordinates> parseCoordinates(Collection<MavenModule> modules,
+      MavenModuleSet mavenModuleSet, FilePath workspace) {
+    if (modules == null || modules.isEmpty() || mavenModuleSet == null || mavenModuleSet.getRootModule() == null
+        || workspace == null) {
+      return Collections.emptyMap();
+    }
+
+    PomCoordinatesCache cache = PomCoordinatesCache.get();
+    Computer computer = workspace.toComputer();
+    String node = computer != null ? computer.getName() : "";
+    long lastWorkspaceChange = getLastWorkspaceChange(mavenModuleSet);
+    Map<MavenModule, PomCoordinates> result = Maps.newLinkedHashMap();
+    Map<String, MavenModule> staleModules = Maps.newLinkedHashMap();
+    Map<String, PomFingerprint> knownFingerprints = Maps.newHashMap();
+    for (MavenModule module : modules) {
+      if (module == null) {
+        continue;
+      }
+      String pathToPom = getPathToPom(module, mavenModuleSet);
+      PomCoordinatesCache.Entry entry = cache.getEntry(PomCoordinatesCache.key(node, workspace.getRemote(), pathToPom));
+      if (entry != null && entry.getValidatedAt() > lastWorkspaceChange) {
+        cache.recordHit();
+        result.put(module, entry.getCoordinates());
+      } else {
+        staleModules.put(pathToPom, module);
+        if (entry != null) {
+          knownFingerprints.put(pathToPom, entry.getFingerprint());
+        }
+      }
+    }
+
+    if (!staleModules.isEmpty()) {
+      long validatedAt = System.currentTimeMillis();
+      Map<String, PomReadResult> readResults;
+      try {
+        readResults = workspace
+            .act(new ReadPomCoordinates(Lists.newArrayList(staleModules.keySet()), knownFingerprints));
+      } catch (Throwable t) {
+        // intentionally blank
+        readResults = Collections.emptyMap();
+      }
+
+      for (Map.Entry<String, MavenModule> stale : staleModules.entrySet()) {
+        PomReadResult readResult = readResults.get(stale.getKey());
+        if (readResult == null) {
+          continue;
+        }
+        String key = PomCoordinatesCache.key(node, workspace.getRemote(), stale.getKey());
+        PomCoordinates coordinates = readResult.coordinates;
+        if (coordinates == null) {
+          // unchanged on the agent, the cached coordinates are still valid
+          PomCoordinatesCache.Entry entry = cache.getEntry(key);
+          if (entry == null) {
+            continue;
+          }
+          cache.recordRevalidation();
+          coordinates = entry.getCoordinates();
+        } else {
+          cache.recordMiss();
+        }
+        cache.put(key, new PomCoordinatesCache.Entry(readResult.fingerprint, coordinates, validatedAt));
+        result.put(stale.getValue(), coordinates);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the point in time after which the workspace of the project may have been modified by a build.
+   */
+  private static long getLastWorkspaceChange(MavenModuleSet mavenModuleSet) {
+    Run<?, ?> lastBuild = mavenModuleSet.getLastBuild();
+    if (lastBuild == null) {
+      return 0;
+    }
+    if (lastBuild.isBuilding()) {
+      return Long.MAX_VALUE;
+    }
+    return lastBuild.getStartTimeInMillis() + lastBuild.getDuration();
+  }
+
+  /**
+   * Calculates the width of the reactor, which is the maximum number of modules that don't depend on each other and
+   * could thus be built in parallel. The modules are grouped by their depth in the dependency graph of the reactor as
+   * parsed from the module POMs by the last build.
+   *
+   * @return the maximum number of modules on the same level of the dependency graph, at least {@code 1}.
+   */
+  public static int getReactorWidth(MavenModuleSet mavenModuleSet) {
+    Map<ModuleName, MavenModule> modules = Maps.newHashMap();
+    for (MavenModule module : mavenModuleSet.getModules()) {
+      modules.put(module.getModuleName(), module);
+    }
+
+    Map<ModuleName, Integer> levels = Maps.newHashMap();
+    Map<Integer, Integer> widths = Maps.newHashMap();
+    int width = 1;
+    for (MavenModule module : modules.values()) {
+      int level = getReactorLevel(module, modules, levels, Sets.<ModuleName> newHashSet());
+      int levelWidth = widths.merge(level, 1, Integer::sum);
+      width = Math.max(width, levelWidth);
+    }
+    return width;
+  }
+
+  private static int getReactorLevel(MavenModule module, Map<ModuleName, MavenModule> modules,
+      Map<ModuleName, Integer> levels, Set<ModuleName> visiting) {
+    ModuleName name = module.getModuleName();
+    Integer level = levels.get(name);
+    if (level != null) {
+      return level;
+    }
+    if (!visiting.add(name)) {
+      // a cycle can't be built anyway, don't recurse infinitely
+      return 0;
+    }
+
+    int maxDependencyLevel = -1;
+    for (ModuleDependency dependency : module.getDependencies()) {
+      MavenModule dependencyModule = modules.get(new ModuleName(dependency.groupId, dependency.artifactId));
+      if (dependencyModule != null && dependencyModule != module) {
+        maxDependencyLevel = Math.max(maxDependencyLevel,
+            getReactorLevel(dependencyModule, modules, levels, visiting));
+      }
+    }
+    visiting.remove(name);
+    levels.put(name, maxDependencyLevel + 1);
+    return maxDependencyLevel + 1;
+  }
+
+  /**
+   * Calculates the dependencies between the passed projects. A project depends on another one if one of its modules
+   * depends on a module of the other project, regardless of the version. The dependencies are taken from the modules
+   * as parsed from the POMs by the last build of each project.
+   *
+   * @return the projects each project depends on, only projects of the passed collection are considered.
+   */
+  public static Map<MavenModuleSet, Set<MavenModuleSet>> getUpstreamProjects(Collection<MavenModuleSet> projects) {
+    Map<ModuleName, MavenModuleSet> owners = Maps.newHashMap();
+    for (MavenModuleSet project : projects) {
+      for (MavenModule module : project.getModules()) {
+        owners.put(module.getModuleName(), project);
+      }
+    }
+
+    Map<MavenModuleSet, Set<MavenModuleSet>> upstreamProjects = Maps.newLinkedHashMap();
+    for (MavenModuleSet project : projects) {
+      Set<MavenModuleSet> upstream = Sets.newLinkedHashSet();
+      for (MavenModule module : project.getModules()) {
+        for (ModuleDependency dependency : module.getDependencies()) {
+          MavenModuleSet owner = owners.get(new ModuleName(dependency.groupId, dependency.artifactId));
+          if (owner != null && owner != project) {
+            upstream.add(owner);
+          }
+        }
+      }
+      upstreamProjects.put(project, upstream);
+    }
+    return upstreamProjects;
+  }
+
+  public static String getPathToPom(MavenModule module, MavenModuleSet mavenModuleSet) {
+    if (mavenModuleSet.getRootModule().equals(module)) {
+      return mavenModuleSet.getRootPOM(null);
+    }
+    return module.getRelativePath() + "/pom.xml";
+  }
+
+  private static final class PomReadResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final PomFingerprint fingerprint;
+
+    /**
+     * {@code null} if the POM is unchanged compared to the fingerprint known to the controller.
+     */
+    private final PomCoordinates coordinates;
+
+    PomReadResult(PomFingerprint fingerprint, PomCoordinates coordinates) {
+      this.fingerprint = fingerprint;
+      this.coordinates = coordinates;
+    }
+  }
+
+  /**
+   * Walks all requested POMs on the agent and returns their coordinates keyed by the workspace-relative POM path.
+   * POMs matching the fingerprint already known to the controller are not parsed again.
+   */
+  private static final class ReadPomCoordinates extends MasterToSlaveFileCallable<Map<String, PomReadResult>> {
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> pathsToPoms;
+
+    private final Map<String, PomFingerprint> knownFingerprints;
+
+    ReadPomCoordinates(List<String> pathsToPoms, Map<String, PomFingerprint> knownFingerprints) {
+      this.pathsToPoms = pathsToPoms;
+      this.knownFingerprints = knownFingerprints;
+    }
+
+    @Override
+    public Map<String, PomReadResult> invoke(File workspace, VirtualChannel channel)
+        throws IOException, InterruptedException {
+      Map<String, PomReadResult> result = Maps.newHashMap();
+      for (String pathToPom : this.pathsToPoms) {
+        File pom = new File(workspace, pathToPom);
+        if (!pom.isFile()) {
+          continue;
+        }
+        try {
+          long size = pom.length();
+          long lastModified = pom.lastModified();
+          PomFingerprint known = this.knownFingerprints.get(pathToPom);
+          if (known != null && known.hasSameAttributes(size, lastModified)) {
+            result.put(pathToPom, new PomReadResult(known, null));
+            continue;
+          }
+
+          MessageDigest digest = MessageDigest.getInstance("SHA-256");
+          PomCoordinates coordinates;
+          try (InputStream in = new DigestInputStream(new BufferedInputStream(Files.newInputStream(pom.toPath())),
+              digest)) {
+            coordinates = PomCoordinatesReader.read(in);
+            // the reader stops after the coordinates, the rest of the file is only digested but not parsed
+            byte[] buffer = new byte[8192];
+            while (in.read(buffer) != -1) {
+              // intentionally blank
+            }
+          }
+          PomFingerprint fingerprint = new PomFingerprint(size, lastModified, Util.toHexString(digest.digest()));
+          if (known != null && Objects.equal(known.getDigest(), fingerprint.getDigest())) {
+            result.put(pathToPom, new PomReadResult(fingerprint, null));
+          } else {
+            result.put(pathToPom, new PomReadResult(fingerprint, coordinates));
+          }
+        } catch (Exception e) {
+          // intentionally blank
+        }
+      }
+      return result;
+    }
+  }
 }
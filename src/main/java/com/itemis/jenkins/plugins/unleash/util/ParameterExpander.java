@@ -0,0 +1,145 @@
+package com.itemis.jenkins.plugins.unleash.util;
+
+import java.util.function.Function;
+
+/**
+ * Expands references to build parameters in a single left-to-right pass. The following syntax is supported:
+ * <ul>
+ * <li>{@code ${name}} is replaced by the value of the parameter. References to unknown parameters are copied verbatim
+ * so that variables meant for the shell (f.i. in hook scripts) survive. Verbatim means that nested references and
+ * <code>$${</code> escapes within such a reference are neither expanded nor unescaped.</li>
+ * <li>{@code ${name:-default}} is replaced by the value of the parameter or by the default if the parameter is empty.
+ * References to unknown parameters are left untouched as well.</li>
+ * <li>References may be nested in names and defaults, f.i. {@code ${deploy_${stage}}} or
+ * {@code ${version:-${fallbackVersion}}}.</li>
+ * <li><code>$${</code> is replaced by a literal <code>${</code> which isn't expanded.</li>
+ * </ul>
+ * Expanded values are inserted literally and never scanned again. Malformed references, f.i. an empty name or a
+ * missing closing brace, are copied literally as well.
+ */
+public final class ParameterExpander {
+  private static final String DEFAULT_SEPARATOR = ":-";
+
+  private final CharSequence input;
+
+  private final Function<String, String> resolver;
+
+  private ParameterExpander(CharSequence input, Function<String, String> resolver) {
+    this.input = input;
+    this.resolver = resolver;
+  }
+
+  /**
+   * @param input the text to expand.
+   * @param resolver returns the value of a parameter or {@code null} if there is no such parameter.
+   * @return the expanded text.
+   */
+  public static String expand(CharSequence input, Function<String, String> resolver) {
+    StringBuilder out = new StringBuilder(input.length() + 64);
+    ParameterExpander expander = new ParameterExpander(input, resolver);
+    expander.expandUntil(0, out, false);
+    return out.toString();
+  }
+
+  /**
+   * Copies and expands the input starting at {@code pos} into {@code out}. Within a reference ({@code inReference})
+   * the copying stops at the closing brace or at the default separator.
+   *
+   * @return the position of the terminating character or the length of the input.
+   */
+  private int expandUntil(int pos, StringBuilder out, boolean inReference) {
+    int length = this.input.length();
+    while (pos < length) {
+      char c = this.input.charAt(pos);
+      if (c == '$') {
+        if (startsWith(pos + 1, "${")) {
+          out.append("${");
+          pos += 3;
+          continue;
+        }
+        if (startsWith(pos + 1, "{")) {
+          pos = expandReference(pos, out);
+          continue;
+        }
+      } else if (inReference && (c == '}' || startsWith(pos, DEFAULT_SEPARATOR))) {
+        return pos;
+      }
+      out.append(c);
+      pos++;
+    }
+    return pos;
+  }
+
+  /**
+   * Expands the reference starting at {@code start} which points to the {@code $}.
+   *
+   * @return the position after the closing brace or, if the reference isn't terminated, the position after the
+   *         opening brace which has been copied literally.
+   */
+  private int expandReference(int start, StringBuilder out) {
+    StringBuilder name = new StringBuilder();
+    int pos = expandUntil(start + 2, name, true);
+    if (pos >= this.input.length()) {
+      return unterminated(start, out);
+    }
+
+    // a reference with an empty name is treated like a reference to an unknown parameter
+    String value = name.length() > 0 ? this.resolver.apply(name.toString()) : null;
+    if (this.input.charAt(pos) == '}') {
+      if (value != null) {
+        out.append(value);
+      } else {
+        out.append(this.input, start, pos + 1);
+      }
+      return pos + 1;
+    }
+
+    // a default value follows the separator, it is parsed in any case to find the closing brace
+    int defaultStart = pos + DEFAULT_SEPARATOR.length();
+    StringBuilder defaultValue = new StringBuilder();
+    pos = defaultStart;
+    while (true) {
+      pos = expandUntil(pos, defaultValue, true);
+      if (pos >= this.input.length()) {
+        return unterminated(start, out);
+      }
+      if (this.input.charAt(pos) == '}') {
+        break;
+      }
+      // a nested separator is part of the default value
+      defaultValue.append(DEFAULT_SEPARATOR);
+      pos += DEFAULT_SEPARATOR.length();
+    }
+
+    if (value == null) {
+      out.append(this.input, start, pos + 1);
+    } else if (value.isEmpty()) {
+      out.append(defaultValue);
+    } else {
+      out.append(value);
+    }
+    return pos + 1;
+  }
+
+  private boolean startsWith(int pos, String prefix) {
+    int length = prefix.length();
+    if (pos + length > this.input.length()) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (this.input.charAt(pos + i) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Copies the opening of an unterminated reference literally. The remainder of the input is scanned again by the
+   * caller so that well-formed references following the opening are still expanded.
+   */
+  private static int unterminated(int start, StringBuilder out) {
+    out.append("${");
+    return start + 2;
+  }
+}
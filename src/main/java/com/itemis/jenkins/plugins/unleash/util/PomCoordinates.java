@@ -0,0 +1,77 @@
+package com.itemis.jenkins.plugins.unleash.util;
+
+import java.io.Serializable;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * The coordinates of a single module POM as read on the agent. Only the values needed for version calculation are
+ * kept so that the data transferred over the remoting channel stays small.
+ */
+public final class PomCoordinates implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private final String groupId;
+
+  private final String artifactId;
+
+  private final String version;
+
+  private final String parentVersion;
+
+  private final String parentGroupId;
+
+  private final String parentArtifactId;
+
+  public PomCoordinates(String groupId, String artifactId, String version, String parentVersion) {
+    this(groupId, artifactId, version, null, null, parentVersion);
+  }
+
+  public PomCoordinates(String groupId, String artifactId, String version, String parentGroupId,
+      String parentArtifactId, String parentVersion) {
+    this.groupId = groupId;
+    this.artifactId = artifactId;
+    this.version = version;
+    this.parentVersion = parentVersion;
+    this.parentGroupId = parentGroupId;
+    this.parentArtifactId = parentArtifactId;
+  }
+
+  public String getGroupId() {
+    return this.groupId;
+  }
+
+  public String getArtifactId() {
+    return this.artifactId;
+  }
+
+  public String getVersion() {
+    return this.version;
+  }
+
+  public String getParentVersion() {
+    return this.parentVersion;
+  }
+
+  public String getParentGroupId() {
+    return this.parentGroupId;
+  }
+
+  public String getParentArtifactId() {
+    return this.parentArtifactId;
+  }
+
+  /**
+   * @return the version of the module or the version of its parent if the module doesn't declare one.
+   */
+  public String getEffectiveVersion() {
+    return this.version != null ? this.version : this.parentVersion;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this).add("groupId", this.groupId).add("artifactId", this.artifactId)
+        .add("version", this.version).add("parentGroupId", this.parentGroupId)
+        .add("parentArtifactId", this.parentArtifactId).add("parentVersion", this.parentVersion).toString();
+  }
+}
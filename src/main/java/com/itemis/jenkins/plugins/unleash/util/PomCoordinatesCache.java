@@ -0,0 +1,159 @@
+package com.itemis.jenkins.plugins.unleash.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
+import hudson.model.Api;
+import jenkins.util.SystemProperties;
+
+/**
+ * A bounded controller-side cache of the coordinates read from module POMs.<br>
+ * Entries are keyed on the node and the workspace path of the POM and carry the fingerprint (size, modification time
+ * and digest) of the file they were read from. An entry is served without touching the workspace as long as no build of the job
+ * has run since it was validated. Otherwise the agent only re-reads POMs whose fingerprint changed.<br>
+ * The memory cap can be set with the system property
+ * {@code com.itemis.jenkins.plugins.unleash.util.PomCoordinatesCache.maxWeight} (approximate number of bytes). The
+ * statistics of the cache are exported under {@code /unleash/pomCoordinatesCache/api/} to size the cache.
+ */
+@ExportedBean
+public final class PomCoordinatesCache {
+  public static final long DEFAULT_MAX_WEIGHT = 4L * 1024 * 1024;
+
+  private static final PomCoordinatesCache INSTANCE = new PomCoordinatesCache(
+      SystemProperties.getLong(PomCoordinatesCache.class.getName() + ".maxWeight", DEFAULT_MAX_WEIGHT));
+
+  private final Cache<String, Entry> cache;
+
+  private final AtomicLong hitCount = new AtomicLong();
+
+  private final AtomicLong revalidationCount = new AtomicLong();
+
+  private final AtomicLong missCount = new AtomicLong();
+
+  private PomCoordinatesCache(long maxWeight) {
+    this.cache = CacheBuilder.newBuilder().maximumWeight(maxWeight).weigher(new Weigher<String, Entry>() {
+      @Override
+      public int weigh(String key, Entry value) {
+        return 2 * key.length() + value.getWeight();
+      }
+    }).recordStats().build();
+  }
+
+  public static PomCoordinatesCache get() {
+    return INSTANCE;
+  }
+
+  public Api getApi() {
+    return new Api(this);
+  }
+
+  /**
+   * @return the cached entry for the given POM or {@code null} if there is none.
+   */
+  Entry getEntry(String key) {
+    return this.cache.getIfPresent(key);
+  }
+
+  void put(String key, Entry entry) {
+    this.cache.put(key, entry);
+  }
+
+  void recordHit() {
+    this.hitCount.incrementAndGet();
+  }
+
+  void recordRevalidation() {
+    this.revalidationCount.incrementAndGet();
+  }
+
+  void recordMiss() {
+    this.missCount.incrementAndGet();
+  }
+
+  /**
+   * @return the number of lookups that were answered without touching the workspace.
+   */
+  @Exported
+  public long getHitCount() {
+    return this.hitCount.get();
+  }
+
+  /**
+   * @return the number of lookups for which the agent had to check the POM but found it unchanged.
+   */
+  @Exported
+  public long getRevalidationCount() {
+    return this.revalidationCount.get();
+  }
+
+  /**
+   * @return the number of lookups for which the POM had to be parsed.
+   */
+  @Exported
+  public long getMissCount() {
+    return this.missCount.get();
+  }
+
+  @Exported
+  public long getEvictionCount() {
+    return this.cache.stats().evictionCount();
+  }
+
+  @Exported(name = "size")
+  public long size() {
+    return this.cache.size();
+  }
+
+  public void invalidateAll() {
+    this.cache.invalidateAll();
+  }
+
+  /**
+   * @param node the name of the node of the workspace since different agents may use the same workspace paths.
+   */
+  static String key(String node, String workspace, String pathToPom) {
+    return node + '|' + workspace + '|' + pathToPom;
+  }
+
+  static final class Entry {
+    private final PomFingerprint fingerprint;
+
+    private final PomCoordinates coordinates;
+
+    private final long validatedAt;
+
+    Entry(PomFingerprint fingerprint, PomCoordinates coordinates, long validatedAt) {
+      this.fingerprint = fingerprint;
+      this.coordinates = coordinates;
+      this.validatedAt = validatedAt;
+    }
+
+    PomFingerprint getFingerprint() {
+      return this.fingerprint;
+    }
+
+    PomCoordinates getCoordinates() {
+      return this.coordinates;
+    }
+
+    long getValidatedAt() {
+      return this.validatedAt;
+    }
+
+    private int getWeight() {
+      return 64 + 2 * (length(this.fingerprint.getDigest()) + length(this.coordinates.getGroupId())
+          + length(this.coordinates.getArtifactId()) + length(this.coordinates.getVersion())
+          + length(this.coordinates.getParentVersion()));
+    }
+
+    private static int length(String s) {
+      return s != null ? s.length() : 0;
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package com.itemis.jenkins.plugins.unleash.util;
+
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * A streaming reader that extracts only the coordinates of a POM.<br>
+ * In contrast to the {@link org.apache.maven.model.io.xpp3.MavenXpp3Reader} no model is built. Sections such as
+ * {@code <dependencies>}, {@code <build>} or {@code <profiles>} are skipped without materializing their content and
+ * reading stops as soon as the top-level coordinates and the {@code <parent>} block are known.
+ */
+public final class PomCoordinatesReader {
+  private static final XMLInputFactory FACTORY = createFactory();
+
+  private PomCoordinatesReader() {
+    // utility class
+  }
+
+  public static PomCoordinates read(InputStream pom) throws XMLStreamException {
+    XMLStreamReader reader = FACTORY.createXMLStreamReader(pom);
+    try {
+      return read(reader);
+    } finally {
+      reader.close();
+    }
+  }
+
+  private static PomCoordinates read(XMLStreamReader reader) throws XMLStreamException {
+    if (reader.nextTag() != XMLStreamConstants.START_ELEMENT || !"project".equals(reader.getLocalName())) {
+      throw new XMLStreamException("The document is not a POM.", reader.getLocation());
+    }
+
+    String groupId = null;
+    String artifactId = null;
+    String version = null;
+    String parentGroupId = null;
+    String parentArtifactId = null;
+    String parentVersion = null;
+    boolean parentRead = false;
+
+    while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+      String name = reader.getLocalName();
+      if (groupId != null && artifactId != null && version != null && parentRead) {
+        break;
+      }
+      // child modules typically inherit the groupId and the version from their parent
+      boolean effectiveCoordinatesKnown = artifactId != null && (groupId != null || parentGroupId != null)
+          && (version != null || parentVersion != null);
+      if (effectiveCoordinatesKnown && !isHeaderElement(name)) {
+        // the header conventionally precedes everything else which is irrelevant
+        break;
+      }
+
+      switch (name) {
+        case "groupId":
+          groupId = reader.getElementText().trim();
+          break;
+        case "artifactId":
+          artifactId = reader.getElementText().trim();
+          break;
+        case "version":
+          version = reader.getElementText().trim();
+          break;
+        case "parent":
+          parentRead = true;
+          while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String parentElement = reader.getLocalName();
+            if ("groupId".equals(parentElement)) {
+              parentGroupId = reader.getElementText().trim();
+            } else if ("artifactId".equals(parentElement)) {
+              parentArtifactId = reader.getElementText().trim();
+            } else if ("version".equals(parentElement)) {
+              parentVersion = reader.getElementText().trim();
+            } else {
+              skipElement(reader);
+            }
+          }
+          break;
+        default:
+          skipElement(reader);
+          break;
+      }
+    }
+
+    return new PomCoordinates(groupId != null ? groupId : parentGroupId, artifactId, version, parentGroupId,
+        parentArtifactId, parentVersion);
+  }
+
+  private static boolean isHeaderElement(String name) {
+    switch (name) {
+      case "modelVersion":
+      case "parent":
+      case "groupId":
+      case "artifactId":
+      case "version":
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Skips the current element including all of its children. The reader must be positioned on the start tag and is
+   * positioned on the matching end tag afterwards.
+   */
+  private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+  }
+
+  private static XMLInputFactory createFactory() {
+    XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    return factory;
+  }
+}
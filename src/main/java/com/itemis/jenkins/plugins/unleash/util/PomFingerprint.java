@@ -0,0 +1,61 @@
+package com.itemis.jenkins.plugins.unleash.util;
+
+import java.io.Serializable;
+
+import com.google.common.base.Objects;
+
+/**
+ * Identifies the content of a POM file by its size, its modification time and a digest of its bytes.
+ */
+public final class PomFingerprint implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private final long size;
+
+  private final long lastModified;
+
+  private final String digest;
+
+  public PomFingerprint(long size, long lastModified, String digest) {
+    this.size = size;
+    this.lastModified = lastModified;
+    this.digest = digest;
+  }
+
+  public long getSize() {
+    return this.size;
+  }
+
+  public long getLastModified() {
+    return this.lastModified;
+  }
+
+  public String getDigest() {
+    return this.digest;
+  }
+
+  /**
+   * @return {@code true} if the file attributes are the same so that the content doesn't need to be digested again.
+   */
+  public boolean hasSameAttributes(long size, long lastModified) {
+    return this.size == size && this.lastModified == lastModified;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof PomFingerprint)) {
+      return false;
+    }
+    PomFingerprint other = (PomFingerprint) obj;
+    return this.size == other.size && this.lastModified == other.lastModified
+        && Objects.equal(this.digest, other.digest);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(this.size, this.lastModified, this.digest);
+  }
+}
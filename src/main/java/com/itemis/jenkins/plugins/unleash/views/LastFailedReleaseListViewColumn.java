@@ -23,16 +23,21 @@
  */
 package com.itemis.jenkins.plugins.unleash.views;
 
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
 import edu.umd.cs.findbugs.annotations.NonNull;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 import com.itemis.jenkins.plugins.unleash.UnleashBadgeAction;
-import com.itemis.jenkins.plugins.unleash.permalinks.LastFailedReleasePermalink;
+import com.itemis.jenkins.plugins.unleash.history.LastReleases;
+import com.itemis.jenkins.plugins.unleash.history.ReleaseBuildRecord;
 
 import hudson.Extension;
+import hudson.Util;
 import hudson.maven.AbstractMavenProject;
 import hudson.model.AbstractBuild;
-import hudson.model.Run;
 import hudson.views.ListViewColumn;
 import hudson.views.ListViewColumnDescriptor;
 
@@ -43,26 +48,63 @@ import hudson.views.ListViewColumnDescriptor;
 // The class still contains substantial parts of the original implementation
 // original authors: Kohsuke Kawaguchi
 public class LastFailedReleaseListViewColumn extends ListViewColumn {
+  private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'")
+      .withZone(ZoneOffset.UTC);
+
   @DataBoundConstructor
   public LastFailedReleaseListViewColumn() {
   }
 
+  /**
+   * @return the information about the last failed release of the project which is taken from the
+   *         {@link LastReleases} without loading any build. Jobs whose releases have not been indexed yet are
+   *         indexed in the background and show no release until then.
+   */
   public Info getLastReleaseInfoOf(AbstractMavenProject<?, ?> project) {
-    Run<?, ?> run = LastFailedReleasePermalink.INSTANCE.resolve(project);
-    if (run != null) {
-      return new Info((AbstractBuild<?, ?>) run);
+    ReleaseBuildRecord record = LastReleases.get().getIndexedLastFailed(project);
+    if (record != null) {
+      return new Info(project, record);
     }
     return null;
   }
 
   public static class Info {
-    public final AbstractBuild<?, ?> build;
-    public final UnleashBadgeAction action;
+    public final ReleaseBuildRecord record;
+
+    private final AbstractMavenProject<?, ?> project;
+
+    Info(AbstractMavenProject<?, ?> project, ReleaseBuildRecord record) {
+      this.project = project;
+      this.record = record;
+    }
+
+    /**
+     * @deprecated loads the build, use {@link #record} instead.
+     */
+    @Deprecated
+    public AbstractBuild<?, ?> getBuild() {
+      return this.project.getBuildByNumber(this.record.getNumber());
+    }
+
+    /**
+     * @deprecated loads the build, use {@link #record} instead.
+     */
+    @Deprecated
+    public UnleashBadgeAction getAction() {
+      AbstractBuild<?, ?> build = getBuild();
+      return build != null ? build.getAction(UnleashBadgeAction.class) : null;
+    }
+
+    public String getVersion() {
+      return this.record.getVersion();
+    }
+
+    public String getTimestampString() {
+      return Util.getTimeSpanString(System.currentTimeMillis() - this.record.getStartTime());
+    }
 
-    Info(AbstractBuild<?, ?> build) {
-      this.build = build;
-      this.action = build.getAction(UnleashBadgeAction.class);
-      assert this.action != null;
+    public String getTimestampString2() {
+      return TIMESTAMP_FORMATTER.format(Instant.ofEpochMilli(this.record.getStartTime()));
     }
   }
 
@@ -0,0 +1,207 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash.workflow;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerResponse2;
+import org.kohsuke.stapler.verb.GET;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import hudson.console.ConsoleNote;
+import hudson.model.Item;
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+
+/**
+ * The debug log messages of a release build that were captured in a compressed file instead of the build log (see
+ * {@link DebugLogSidecar}). Ranges of the messages are decompressed on demand.<br>
+ * The messages are compressed in blocks of {@value DebugLogSidecar#BLOCK_SIZE} bytes. While the build is running, only
+ * the completed blocks are available; the last block is written when the build finishes.
+ */
+public class DebugLogAction implements RunAction2 {
+  public static final String FILE_NAME = "unleash-debug.log.gz";
+
+  /**
+   * The maximum number of bytes served by a single range request.
+   */
+  public static final int MAX_RANGE_LENGTH = 1024 * 1024;
+
+  /**
+   * The uncompressed and compressed offsets of the gzip members of the file.
+   */
+  private final List<Long> blockOffsets = Lists.newArrayList();
+
+  private final List<Long> compressedBlockOffsets = Lists.newArrayList();
+
+  private long length;
+
+  private long compressedLength;
+
+  private transient Run<?, ?> run;
+
+  @Override
+  public void onAttached(Run<?, ?> run) {
+    this.run = run;
+  }
+
+  @Override
+  public void onLoad(Run<?, ?> run) {
+    this.run = run;
+  }
+
+  @Override
+  public String getIconFileName() {
+    return "notepad.png";
+  }
+
+  @Override
+  public String getDisplayName() {
+    return "Debug Log";
+  }
+
+  @Override
+  public String getUrlName() {
+    return "unleashDebugLog";
+  }
+
+  public Run<?, ?> getRun() {
+    return this.run;
+  }
+
+  public File getFile() {
+    return new File(this.run.getRootDir(), FILE_NAME);
+  }
+
+  synchronized void blockWritten(long offset, long compressedOffset) {
+    this.blockOffsets.add(offset);
+    this.compressedBlockOffsets.add(compressedOffset);
+  }
+
+  synchronized void setLength(long length, long compressedLength) {
+    this.length = length;
+    this.compressedLength = compressedLength;
+  }
+
+  /**
+   * @return the number of uncompressed bytes of the debug log messages.
+   */
+  public synchronized long getLength() {
+    return this.length;
+  }
+
+  public synchronized long getCompressedLength() {
+    return this.compressedLength;
+  }
+
+  /**
+   * @return the uncompressed offsets at which the blocks of the file start, which are natural range boundaries.
+   */
+  public synchronized List<Long> getBlockOffsets() {
+    return ImmutableList.copyOf(this.blockOffsets);
+  }
+
+  /**
+   * Serves up to {@value #MAX_RANGE_LENGTH} bytes of the debug log messages starting at the given uncompressed offset
+   * as plain text. Only the blocks containing the range are decompressed. The messages of a running build that are not
+   * yet part of a completed block are not available.
+   */
+  @GET
+  public void doRange(@QueryParameter long start, @QueryParameter int length, StaplerResponse2 rsp)
+      throws IOException {
+    this.run.checkPermission(Item.READ);
+    long blockOffset;
+    long compressedOffset;
+    long totalLength;
+    synchronized (this) {
+      totalLength = this.length;
+      if (start < 0 || start >= totalLength) {
+        rsp.sendError(416);
+        return;
+      }
+      int block = 0;
+      for (int i = 1; i < this.blockOffsets.size() && this.blockOffsets.get(i) <= start; i++) {
+        block = i;
+      }
+      blockOffset = this.blockOffsets.get(block);
+      compressedOffset = this.compressedBlockOffsets.get(block);
+    }
+
+    int rangeLength = (int) Math.min(totalLength - start, length > 0 ? Math.min(length, MAX_RANGE_LENGTH)
+        : MAX_RANGE_LENGTH);
+    byte[] buffer = new byte[rangeLength];
+    int read;
+    try (InputStream file = new FileInputStream(getFile())) {
+      IOUtils.skipFully(file, compressedOffset);
+      // the gzip stream continues with the following members if the range spans several blocks
+      try (InputStream in = new GZIPInputStream(file)) {
+        IOUtils.skipFully(in, start - blockOffset);
+        read = IOUtils.read(in, buffer);
+      }
+    }
+
+    rsp.setContentType("text/plain;charset=UTF-8");
+    PrintWriter writer = rsp.getWriter();
+    writer.write(ConsoleNote.removeNotes(new String(buffer, 0, read, this.run.getCharset())));
+    if (start + read < totalLength) {
+      writer.println();
+      writer.println("[unleash] The debug log continues at range?start=" + (start + read));
+    }
+    writer.flush();
+  }
+
+  /**
+   * Serves the whole compressed file for download.
+   */
+  @GET
+  public void doDownload(StaplerResponse2 rsp) throws IOException {
+    this.run.checkPermission(Item.READ);
+    File file = getFile();
+    if (!file.isFile()) {
+      rsp.sendError(404);
+      return;
+    }
+    String fileName = this.run.getParent().getName() + "-" + this.run.getNumber() + "-debug.log.gz";
+    rsp.setContentType("application/gzip");
+    // the quoted name is a fallback for clients that don't support the encoded one of RFC 6266
+    rsp.setHeader("Content-Disposition", "attachment; filename=\"" + fileName.replaceAll("[^\\w.\\-]", "_")
+        + "\"; filename*=UTF-8''" + URLEncoder.encode(fileName, StandardCharsets.UTF_8).replace("+", "%20"));
+    rsp.setContentLengthLong(file.length());
+    try (InputStream in = new FileInputStream(file)) {
+      IOUtils.copy(in, rsp.getOutputStream());
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash.workflow;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the debug log messages of a release build to a compressed file next to the build log. The file consists of
+ * independently compressed gzip members of about {@value #BLOCK_SIZE} uncompressed bytes each. The start of each
+ * member is recorded in the {@link DebugLogAction} so that a range of the log can be read by decompressing the
+ * containing members only. As concatenated gzip members form a valid gzip file, the file can also be downloaded and
+ * decompressed as a whole.
+ */
+final class DebugLogSidecar implements Closeable {
+  static final int BLOCK_SIZE = 1024 * 1024;
+
+  private final OutputStream out;
+
+  private final DebugLogAction action;
+
+  private final ByteArrayOutputStream block = new ByteArrayOutputStream(BLOCK_SIZE + 8192);
+
+  private final ByteArrayOutputStream compressedBlock = new ByteArrayOutputStream(BLOCK_SIZE / 4);
+
+  private long uncompressedLength;
+
+  private long compressedLength;
+
+  DebugLogSidecar(File file, DebugLogAction action) throws IOException {
+    this.out = new FileOutputStream(file);
+    this.action = action;
+  }
+
+  void write(byte[] b, int len) throws IOException {
+    this.block.write(b, 0, len);
+    if (this.block.size() >= BLOCK_SIZE) {
+      writeBlock();
+    }
+  }
+
+  private void writeBlock() throws IOException {
+    if (this.block.size() == 0) {
+      return;
+    }
+    this.compressedBlock.reset();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(this.compressedBlock)) {
+      this.block.writeTo(gzip);
+    }
+    this.compressedBlock.writeTo(this.out);
+    this.out.flush();
+
+    this.action.blockWritten(this.uncompressedLength, this.compressedLength);
+    this.uncompressedLength += this.block.size();
+    this.compressedLength += this.compressedBlock.size();
+    this.action.setLength(this.uncompressedLength, this.compressedLength);
+    this.block.reset();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      writeBlock();
+    } finally {
+      this.out.close();
+    }
+  }
+}
@@ -0,0 +1,243 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash.workflow;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.commons.io.IOUtils;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerResponse2;
+import org.kohsuke.stapler.verb.GET;
+
+import com.google.common.collect.ImmutableList;
+
+import hudson.console.ConsoleNote;
+import hudson.model.Item;
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+
+/**
+ * An index of the byte offsets at which the workflow steps and module builds of a release build start in the build
+ * log. The offsets are recorded by the {@link UnleashConsoleLogFilter} while the log is written so that a section can
+ * be read from the log without streaming the whole log.
+ */
+public class ReleaseLogIndexAction implements RunAction2 {
+  /**
+   * The maximum number of bytes served by a single request for a section.
+   */
+  public static final int MAX_CHUNK_SIZE = 1024 * 1024;
+
+  private final List<Section> sections = new CopyOnWriteArrayList<>();
+
+  private transient Run<?, ?> run;
+
+  @Override
+  public void onAttached(Run<?, ?> run) {
+    this.run = run;
+  }
+
+  @Override
+  public void onLoad(Run<?, ?> run) {
+    this.run = run;
+  }
+
+  @Override
+  public String getIconFileName() {
+    return "notepad.png";
+  }
+
+  @Override
+  public String getDisplayName() {
+    return "Release Steps";
+  }
+
+  @Override
+  public String getUrlName() {
+    return "unleashSteps";
+  }
+
+  public Run<?, ?> getRun() {
+    return this.run;
+  }
+
+  void sectionStarted(Section.Type type, String name, long offset) {
+    this.sections.add(new Section(type, name, offset));
+  }
+
+  public List<Section> getSections() {
+    return ImmutableList.copyOf(this.sections);
+  }
+
+  /**
+   * @return the offset at which the section with the given index ends which is the start of the next section or the
+   *         end of the log.
+   */
+  public long getEnd(int index) {
+    return getEnd(getSections(), index);
+  }
+
+  private long getEnd(List<Section> sections, int index) {
+    if (index + 1 < sections.size()) {
+      return sections.get(index + 1).getOffset();
+    }
+    return getLogLength();
+  }
+
+  /**
+   * @return the uncompressed length of the log. The length of a compressed log is taken from the size field of its gzip
+   *         trailer which holds the length modulo 2^32, so it is only exact for logs smaller than 4 GiB.
+   */
+  private long getLogLength() {
+    File logFile = this.run.getLogFile();
+    if (!logFile.isFile()) {
+      return this.run.getLogText().length();
+    }
+    if (!logFile.getName().endsWith(".gz")) {
+      return logFile.length();
+    }
+    try (RandomAccessFile file = new RandomAccessFile(logFile, "r")) {
+      if (file.length() < 4) {
+        return 0;
+      }
+      file.seek(file.length() - 4);
+      // the size is stored little-endian
+      long size = 0;
+      for (int i = 0; i < 4; i++) {
+        size |= (long) file.read() << (8 * i);
+      }
+      return size;
+    } catch (IOException e) {
+      return this.run.getLogText().length();
+    }
+  }
+
+  /**
+   * Serves the section with the given index as plain text, starting at the given offset within the section. At most
+   * {@value #MAX_CHUNK_SIZE} bytes are served; the location of the remaining content is appended if the section is
+   * larger.
+   */
+  @GET
+  public void doSection(@QueryParameter int index, @QueryParameter long start, StaplerResponse2 rsp)
+      throws IOException {
+    this.run.checkPermission(Item.READ);
+    List<Section> sections = getSections();
+    if (index < 0 || index >= sections.size()) {
+      rsp.sendError(404);
+      return;
+    }
+
+    long from = sections.get(index).getOffset() + Math.max(0, start);
+    long end = getEnd(sections, index);
+    int length = (int) Math.max(0, Math.min(end - from, MAX_CHUNK_SIZE));
+    byte[] buffer = new byte[length];
+    int read = readLog(from, buffer);
+    boolean truncated = from + read < end;
+    if (truncated) {
+      // don't split lines and thus console notes
+      for (int i = read - 1; i > 0; i--) {
+        if (buffer[i] == '\n') {
+          read = i + 1;
+          break;
+        }
+      }
+    }
+
+    rsp.setContentType("text/plain;charset=UTF-8");
+    PrintWriter writer = rsp.getWriter();
+    writer.write(ConsoleNote.removeNotes(new String(buffer, 0, read, this.run.getCharset())));
+    if (truncated) {
+      long next = from + read - sections.get(index).getOffset();
+      writer.println();
+      writer.println("[unleash] The section continues at section?index=" + index + "&start=" + next);
+    }
+    writer.flush();
+  }
+
+  /**
+   * Reads the log starting at the given offset into the buffer. An uncompressed log file is read from the offset
+   * directly, compressed logs have to be read up to the offset.
+   *
+   * @return the number of bytes read.
+   */
+  private int readLog(long offset, byte[] buffer) throws IOException {
+    File logFile = this.run.getLogFile();
+    if (logFile.isFile() && !logFile.getName().endsWith(".gz")) {
+      try (RandomAccessFile file = new RandomAccessFile(logFile, "r")) {
+        file.seek(offset);
+        int read = 0;
+        while (read < buffer.length) {
+          int n = file.read(buffer, read, buffer.length - read);
+          if (n < 0) {
+            break;
+          }
+          read += n;
+        }
+        return read;
+      }
+    }
+    try (InputStream in = this.run.getLogInputStream()) {
+      IOUtils.skipFully(in, offset);
+      return IOUtils.read(in, buffer);
+    }
+  }
+
+  public static final class Section {
+    public enum Type {
+      STEP, MODULE
+    }
+
+    private final Type type;
+
+    private final String name;
+
+    private final long offset;
+
+    Section(Type type, String name, long offset) {
+      this.type = type;
+      this.name = name;
+      this.offset = offset;
+    }
+
+    public Type getType() {
+      return this.type;
+    }
+
+    public String getName() {
+      return this.name;
+    }
+
+    /**
+     * @return the offset of the first byte of the section in the build log.
+     */
+    public long getOffset() {
+      return this.offset;
+    }
+  }
+}
@@ -0,0 +1,255 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash.workflow;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import hudson.Util;
+import hudson.model.Api;
+import hudson.model.Result;
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+
+/**
+ * The timeline of a release build listing the workflow steps, the module builds and the mojo executions with their
+ * start offsets and durations. The module and mojo entries of the Maven process started by Jenkins are reported by the
+ * {@link ReleaseTimelineReporter}, the workflow steps are taken from the {@link WorkflowStepsAction} of the build. All
+ * times refer to the clock of the controller.<br>
+ * The timeline is available as JSON under {@code <build>/unleashTimeline/api/json} to trend the step durations across
+ * releases.
+ */
+@ExportedBean
+public class ReleaseTimelineAction implements RunAction2 {
+  private final List<TimelineEntry> entries = new CopyOnWriteArrayList<>();
+
+  private transient Run<?, ?> run;
+
+  /**
+   * @return the timeline action of the build which is created if necessary.
+   */
+  static ReleaseTimelineAction getOrCreate(Run<?, ?> run) {
+    synchronized (run) {
+      ReleaseTimelineAction action = run.getAction(ReleaseTimelineAction.class);
+      if (action == null) {
+        action = new ReleaseTimelineAction();
+        run.addAction(action);
+      }
+      return action;
+    }
+  }
+
+  @Override
+  public void onAttached(Run<?, ?> run) {
+    this.run = run;
+  }
+
+  @Override
+  public void onLoad(Run<?, ?> run) {
+    this.run = run;
+  }
+
+  @Override
+  public String getIconFileName() {
+    return "clock.png";
+  }
+
+  @Override
+  public String getDisplayName() {
+    return "Release Timeline";
+  }
+
+  @Override
+  public String getUrlName() {
+    return "unleashTimeline";
+  }
+
+  public Run<?, ?> getRun() {
+    return this.run;
+  }
+
+  public Api getApi() {
+    return new Api(this);
+  }
+
+  void addEntries(Collection<TimelineEntry> entries) {
+    this.entries.addAll(entries);
+  }
+
+  /**
+   * @return the workflow steps followed by the module builds and mojo executions, each ordered by their start.
+   */
+  @Exported(inline = true)
+  public List<TimelineEntry> getEntries() {
+    List<TimelineEntry> result = Lists.newArrayList(getSteps());
+    List<TimelineEntry> reported = Lists.newArrayList(this.entries);
+    reported.sort((e1, e2) -> Long.compare(e1.getStart(), e2.getStart()));
+    result.addAll(reported);
+    return result;
+  }
+
+  /**
+   * The workflow steps only know their start. A step ends with the start of the next step, the last one with the end
+   * of the unleash mojo or the build.
+   */
+  private List<TimelineEntry> getSteps() {
+    WorkflowStepsAction stepsAction = this.run != null ? this.run.getAction(WorkflowStepsAction.class) : null;
+    if (stepsAction == null) {
+      return ImmutableList.of();
+    }
+    List<WorkflowStepsAction.RecordedStep> steps = stepsAction.getSteps();
+    // the log only tells which steps started, a failed release is attributed to the last one
+    Result buildResult = this.run.isBuilding() ? null : this.run.getResult();
+    boolean releaseFailed = buildResult != null && buildResult.isWorseThan(Result.UNSTABLE);
+
+    long end = getWorkflowEnd();
+    List<TimelineEntry> result = Lists.newArrayListWithCapacity(steps.size());
+    for (int i = 0; i < steps.size(); i++) {
+      WorkflowStepsAction.RecordedStep step = steps.get(i);
+      long stepEnd = i + 1 < steps.size() ? steps.get(i + 1).getStartTime() : end;
+      boolean failed = releaseFailed && i + 1 == steps.size();
+      result.add(new TimelineEntry(TimelineEntry.Type.STEP, step.getId(), step.getStartTime(),
+          Math.max(0, stepEnd - step.getStartTime()), failed));
+    }
+    return result;
+  }
+
+  private long getWorkflowEnd() {
+    for (TimelineEntry entry : this.entries) {
+      if (entry.getType() == TimelineEntry.Type.MOJO
+          && entry.getName().startsWith(ReleaseTimelineReporter.UNLEASH_MOJO_PREFIX)) {
+        return entry.getStart() + entry.getDuration();
+      }
+    }
+    if (this.run.isBuilding()) {
+      return System.currentTimeMillis();
+    }
+    return this.run.getStartTimeInMillis() + this.run.getDuration();
+  }
+
+  /**
+   * @return the duration of the build used to scale the timeline.
+   */
+  public long getTotalDuration() {
+    if (this.run.isBuilding()) {
+      return Math.max(1, System.currentTimeMillis() - this.run.getStartTimeInMillis());
+    }
+    return Math.max(1, this.run.getDuration());
+  }
+
+  /**
+   * @return the offset of the entry relative to the start of the build in percent of the build duration.
+   */
+  public int getOffsetPercentage(TimelineEntry entry) {
+    long offset = Math.max(0, entry.getStart() - this.run.getStartTimeInMillis());
+    return (int) Math.min(100, offset * 100 / getTotalDuration());
+  }
+
+  /**
+   * @return the duration of the entry in percent of the build duration, at least {@code 1}.
+   */
+  public int getDurationPercentage(TimelineEntry entry) {
+    long duration = entry.getDuration() * 100 / getTotalDuration();
+    return (int) Math.max(1, Math.min(100 - getOffsetPercentage(entry), duration));
+  }
+
+  public String getOffsetString(TimelineEntry entry) {
+    return Util.getTimeSpanString(Math.max(0, entry.getStart() - this.run.getStartTimeInMillis()));
+  }
+
+  /**
+   * A step, module build or mojo execution of the release. Only the start and the duration are stored to keep the
+   * build record small.
+   */
+  @ExportedBean(defaultVisibility = 2)
+  public static final class TimelineEntry implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public enum Type {
+      STEP, MODULE, MOJO
+    }
+
+    private final Type type;
+
+    private final String name;
+
+    private final long start;
+
+    private final long duration;
+
+    private final boolean failed;
+
+    TimelineEntry(Type type, String name, long start, long duration, boolean failed) {
+      this.type = type;
+      this.name = name;
+      this.start = start;
+      this.duration = duration;
+      this.failed = failed;
+    }
+
+    @Exported
+    public Type getType() {
+      return this.type;
+    }
+
+    @Exported
+    public String getName() {
+      return this.name;
+    }
+
+    @Exported
+    public long getStart() {
+      return this.start;
+    }
+
+    @Exported
+    public long getDuration() {
+      return this.duration;
+    }
+
+    @Exported
+    public boolean isFailed() {
+      return this.failed;
+    }
+
+    public String getDurationString() {
+      return Util.getTimeSpanString(this.duration);
+    }
+
+    /**
+     * @return a copy of this entry whose start is moved by the given offset, f.i. to convert it to another clock.
+     */
+    TimelineEntry shift(long offset) {
+      return new TimelineEntry(this.type, this.name, this.start + offset, this.duration, this.failed);
+    }
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash.workflow;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.maven.project.MavenProject;
+
+import com.google.common.collect.Lists;
+import com.itemis.jenkins.plugins.unleash.UnleashCause;
+import com.itemis.jenkins.plugins.unleash.UnleashMavenBuildWrapper;
+
+import hudson.Extension;
+import hudson.maven.MavenBuild;
+import hudson.maven.MavenBuildProxy;
+import hudson.maven.MavenModule;
+import hudson.maven.MavenModuleSetBuild;
+import hudson.maven.MavenReporter;
+import hudson.maven.MavenReporterDescriptor;
+import hudson.maven.MojoInfo;
+import hudson.model.BuildListener;
+
+/**
+ * Records the start and the duration of the module builds and mojo executions of release builds in the Maven process
+ * started by Jenkins and sends them to the {@link ReleaseTimelineAction} of the build on the controller. The builds
+ * that the unleash-maven-plugin runs with the Maven Invoker during the release are separate processes which are not
+ * observed, the workflow steps are recognized from the build log instead.<br>
+ * The events are buffered in the Maven process and sent once per module build. Module builds that don't execute the
+ * unleash-maven-plugin are not sent at all, so that the reporter doesn't add remoting calls to regular builds. The
+ * reporter is only attached to the modules of jobs that are configured for unleash releases.
+ */
+public class ReleaseTimelineReporter extends MavenReporter {
+  private static final long serialVersionUID = 1L;
+
+  static final String UNLEASH_MOJO_PREFIX = "unleash-maven-plugin:";
+
+  private transient List<ReleaseTimelineAction.TimelineEntry> entries;
+
+  private transient long moduleStart;
+
+  private transient long mojoStart;
+
+  private transient boolean release;
+
+  @Override
+  public boolean preBuild(MavenBuildProxy build, MavenProject pom, BuildListener listener)
+      throws InterruptedException, IOException {
+    this.entries = Lists.newArrayList();
+    this.moduleStart = System.currentTimeMillis();
+    this.release = false;
+    return true;
+  }
+
+  @Override
+  public boolean preExecute(MavenBuildProxy build, MavenProject pom, MojoInfo mojo, BuildListener listener)
+      throws InterruptedException, IOException {
+    this.mojoStart = System.currentTimeMillis();
+    return true;
+  }
+
+  @Override
+  public boolean postExecute(MavenBuildProxy build, MavenProject pom, MojoInfo mojo, BuildListener listener,
+      Throwable error) throws InterruptedException, IOException {
+    if (this.entries == null) {
+      return true;
+    }
+    String name = mojo.getPluginName().artifactId + ":" + mojo.getGoal();
+    this.release |= name.startsWith(UNLEASH_MOJO_PREFIX);
+    this.entries.add(new ReleaseTimelineAction.TimelineEntry(ReleaseTimelineAction.TimelineEntry.Type.MOJO,
+        name + " (" + pom.getArtifactId() + ")", this.mojoStart, System.currentTimeMillis() - this.mojoStart,
+        error != null));
+    return true;
+  }
+
+  @Override
+  public boolean postBuild(MavenBuildProxy build, MavenProject pom, BuildListener listener)
+      throws InterruptedException, IOException {
+    if (this.entries == null || !this.release) {
+      return true;
+    }
+    this.entries.add(new ReleaseTimelineAction.TimelineEntry(ReleaseTimelineAction.TimelineEntry.Type.MODULE,
+        pom.getGroupId() + ":" + pom.getArtifactId(), this.moduleStart, System.currentTimeMillis() - this.moduleStart,
+        false));
+    build.execute(new AddEntries(this.entries, System.currentTimeMillis()));
+    this.entries = null;
+    return true;
+  }
+
+  private static final class AddEntries implements MavenBuildProxy.BuildCallable<Void, IOException> {
+    private static final long serialVersionUID = 1L;
+
+    private final List<ReleaseTimelineAction.TimelineEntry> entries;
+
+    /**
+     * The time of the Maven process when the entries were sent.
+     */
+    private final long sendTime;
+
+    AddEntries(List<ReleaseTimelineAction.TimelineEntry> entries, long sendTime) {
+      this.entries = entries;
+      this.sendTime = sendTime;
+    }
+
+    @Override
+    public Void call(MavenBuild build) throws IOException, InterruptedException {
+      MavenModuleSetBuild parentBuild = build.getParentBuild();
+      if (parentBuild != null && parentBuild.getCause(UnleashCause.class) != null) {
+        // the clock of the agent may differ from the one of the controller the build start and the steps refer to
+        long clockOffset = System.currentTimeMillis() - this.sendTime;
+        List<ReleaseTimelineAction.TimelineEntry> entries = Lists.newArrayListWithCapacity(this.entries.size());
+        for (ReleaseTimelineAction.TimelineEntry entry : this.entries) {
+          entries.add(entry.shift(clockOffset));
+        }
+        ReleaseTimelineAction.getOrCreate(parentBuild).addEntries(entries);
+      }
+      return null;
+    }
+  }
+
+  @Extension
+  public static final class DescriptorImpl extends MavenReporterDescriptor {
+    @Override
+    public String getDisplayName() {
+      return "Unleash Release Timeline";
+    }
+
+    @Override
+    public MavenReporter newAutoInstance(MavenModule module) {
+      if (module.getParent().getBuildWrappersList().get(UnleashMavenBuildWrapper.class) == null) {
+        return null;
+      }
+      return new ReleaseTimelineReporter();
+    }
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash.workflow;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.itemis.jenkins.plugins.unleash.UnleashArgumentsAction;
+import com.itemis.jenkins.plugins.unleash.UnleashCause;
+
+import hudson.Extension;
+import hudson.console.ConsoleLogFilter;
+import hudson.console.ConsoleNote;
+import hudson.console.LineTransformationOutputStream;
+import hudson.model.AbstractBuild;
+import hudson.model.Run;
+import jenkins.util.SystemProperties;
+
+/**
+ * Watches the log of release builds for the messages of the unleash-maven-plugin announcing the execution of a
+ * workflow step and records the steps in the {@link WorkflowStepsAction} of the build.<br>
+ * The messages are recognized by a regular expression with a named group {@code step} capturing the step id. It can be
+ * changed with the system property
+ * {@code com.itemis.jenkins.plugins.unleash.workflow.UnleashConsoleLogFilter.stepPattern}.<br>
+ * The byte offsets of the step messages and of the Maven module headers (pattern property {@code modulePattern}, named
+ * group {@code module}) are recorded in the {@link ReleaseLogIndexAction} of the build.<br>
+ * If requested, the debug log messages are written to a compressed {@link DebugLogSidecar} instead of the build log.
+ */
+@Extension
+public class UnleashConsoleLogFilter extends ConsoleLogFilter implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  public static final String DEFAULT_STEP_PATTERN = "(?:Executing|Running)\\s+(?:processing\\s+)?step"
+      + "\\s*[:'\\[]?\\s*(?<step>[A-Za-z][\\w.\\-]*)";
+
+  static final Pattern STEP_PATTERN = Pattern.compile(
+      SystemProperties.getString(UnleashConsoleLogFilter.class.getName() + ".stepPattern", DEFAULT_STEP_PATTERN));
+
+  public static final String DEFAULT_MODULE_PATTERN = "\\[INFO\\] -+< (?<module>[^\\s>]+) >-+$";
+
+  static final Pattern MODULE_PATTERN = Pattern.compile(
+      SystemProperties.getString(UnleashConsoleLogFilter.class.getName() + ".modulePattern", DEFAULT_MODULE_PATTERN));
+
+  static final Pattern DEBUG_PATTERN = Pattern.compile("^[\\d:.,\\-T ]*\\[DEBUG\\]");
+
+  @Override
+  public OutputStream decorateLogger(Run build, OutputStream logger) throws IOException, InterruptedException {
+    if (!(build instanceof AbstractBuild<?, ?> abstractBuild) || abstractBuild.getCause(UnleashCause.class) == null) {
+      return logger;
+    }
+    WorkflowStepsAction action = new WorkflowStepsAction();
+    UnleashArgumentsAction arguments = build.getAction(UnleashArgumentsAction.class);
+    build.addOrReplaceAction(action);
+    ReleaseTimelineAction.getOrCreate(build);
+    ReleaseLogIndexAction logIndex = new ReleaseLogIndexAction();
+    build.addOrReplaceAction(logIndex);
+    DebugLogSidecar debugLog = null;
+    if (arguments != null && arguments.debugLog() && arguments.debugLogSidecar()) {
+      DebugLogAction debugLogAction = new DebugLogAction();
+      build.addOrReplaceAction(debugLogAction);
+      debugLog = new DebugLogSidecar(new File(build.getRootDir(), DebugLogAction.FILE_NAME), debugLogAction);
+    }
+    return new StepRecordingOutputStream(logger, build.getCharset(), build.getLogFile(), action, logIndex, debugLog);
+  }
+
+  private static final class StepRecordingOutputStream extends LineTransformationOutputStream.Delegating {
+    private final Charset charset;
+
+    private final File logFile;
+
+    private final WorkflowStepsAction action;
+
+    private final ReleaseLogIndexAction logIndex;
+
+    private final DebugLogSidecar debugLog;
+
+    /**
+     * The number of bytes passed to the log so far which is used as the offset of the current line if the log isn't a
+     * local file.
+     */
+    private long position;
+
+    StepRecordingOutputStream(OutputStream out, Charset charset, File logFile, WorkflowStepsAction action,
+        ReleaseLogIndexAction logIndex, DebugLogSidecar debugLog) {
+      super(out);
+      this.charset = charset;
+      this.logFile = logFile;
+      this.action = action;
+      this.logIndex = logIndex;
+      this.debugLog = debugLog;
+    }
+
+    @Override
+    protected void eol(byte[] b, int len) throws IOException {
+      String line = ConsoleNote.removeNotes(new String(b, 0, len, this.charset)).trim();
+      if (this.debugLog != null && DEBUG_PATTERN.matcher(line).find()) {
+        this.debugLog.write(b, len);
+        return;
+      }
+
+      Matcher matcher = STEP_PATTERN.matcher(line);
+      if (matcher.find()) {
+        String step = matcher.group("step");
+        this.action.stepStarted(step, System.currentTimeMillis());
+        this.logIndex.sectionStarted(ReleaseLogIndexAction.Section.Type.STEP, step, getLogOffset());
+      } else {
+        matcher = MODULE_PATTERN.matcher(line);
+        if (matcher.find()) {
+          this.logIndex.sectionStarted(ReleaseLogIndexAction.Section.Type.MODULE, matcher.group("module"),
+              getLogOffset());
+        }
+      }
+      this.out.write(b, 0, len);
+      this.position += len;
+    }
+
+    /**
+     * @return the offset at which the next line will be written to the log. The filters between this stream and the
+     *         log file, f.i. those masking passwords, may change the number of bytes. Thus the length of the log file
+     *         is used after flushing the preceding lines through these filters.
+     */
+    private long getLogOffset() throws IOException {
+      if (this.logFile != null) {
+        this.out.flush();
+        if (this.logFile.isFile()) {
+          return this.logFile.length();
+        }
+      }
+      return this.position;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        if (this.debugLog != null) {
+          this.debugLog.close();
+        }
+      }
+    }
+  }
+}
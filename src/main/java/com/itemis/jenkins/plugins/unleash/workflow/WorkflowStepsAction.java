@@ -0,0 +1,98 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash.workflow;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.google.common.collect.ImmutableList;
+
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+
+/**
+ * The workflow steps of the unleash-maven-plugin that were started during a release build, recorded by the
+ * {@link UnleashConsoleLogFilter}. Only the starts of the steps are known from the log, not whether a step succeeded.
+ */
+public class WorkflowStepsAction implements RunAction2 {
+  private final List<RecordedStep> steps = new CopyOnWriteArrayList<>();
+
+  private transient Run<?, ?> run;
+
+  @Override
+  public void onAttached(Run<?, ?> run) {
+    this.run = run;
+  }
+
+  @Override
+  public void onLoad(Run<?, ?> run) {
+    this.run = run;
+  }
+
+  @Override
+  public String getIconFileName() {
+    return null;
+  }
+
+  @Override
+  public String getDisplayName() {
+    return null;
+  }
+
+  @Override
+  public String getUrlName() {
+    return null;
+  }
+
+  public Run<?, ?> getRun() {
+    return this.run;
+  }
+
+  void stepStarted(String id, long startTime) {
+    this.steps.add(new RecordedStep(id, startTime));
+  }
+
+  public List<RecordedStep> getSteps() {
+    return ImmutableList.copyOf(this.steps);
+  }
+
+  public static final class RecordedStep {
+    private final String id;
+
+    private final long startTime;
+
+    RecordedStep(String id, long startTime) {
+      this.id = id;
+      this.startTime = startTime;
+    }
+
+    public String getId() {
+      return this.id;
+    }
+
+    public long getStartTime() {
+      return this.startTime;
+    }
+  }
+}
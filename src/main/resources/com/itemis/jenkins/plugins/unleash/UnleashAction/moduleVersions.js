@@ -0,0 +1,128 @@
+(function () {
+  var PAGE_SIZE = 50;
+  var POLL_DELAY = 250;
+
+  function init() {
+    var body = document.getElementById("unleash-module-versions");
+    if (!body) {
+      return;
+    }
+    var status = document.getElementById("unleash-module-versions-status");
+    var filter = document.getElementById("unleash-module-filter");
+    var releaseVersion = document.getElementById("unleash-release-version");
+    var developmentVersion = document.getElementById("unleash-development-version");
+    var generation = 0;
+    var filterTimer = null;
+
+    function clearRows() {
+      while (body.rows.length > 1) {
+        body.deleteRow(1);
+      }
+    }
+
+    function appendRow(module) {
+      var row = body.insertRow(-1);
+      row.setAttribute("align", "center");
+      [module.name, module.releaseVersion, module.developmentVersion].forEach(function (value) {
+        row.insertCell(-1).textContent = value;
+      });
+    }
+
+    function fillGlobalVersion(input, value) {
+      // never overwrite what the user already typed
+      if (input && !input.value && value) {
+        input.value = value;
+      }
+    }
+
+    function load(start, currentGeneration) {
+      var url = body.getAttribute("data-url") + "?start=" + start + "&limit=" + PAGE_SIZE;
+      if (filter && filter.value) {
+        url += "&artifactId=" + encodeURIComponent(filter.value);
+      }
+      fetch(url)
+        .then(function (response) {
+          return response.json();
+        })
+        .then(function (json) {
+          if (currentGeneration !== generation) {
+            return;
+          }
+          if (json.status === "error") {
+            status.textContent = json.message;
+            return;
+          }
+          var data = json.data;
+          if (data.pending) {
+            setTimeout(function () {
+              load(start, currentGeneration);
+            }, POLL_DELAY);
+            return;
+          }
+          if (data.root) {
+            fillGlobalVersion(releaseVersion, data.root.releaseVersion);
+            fillGlobalVersion(developmentVersion, data.root.developmentVersion);
+          }
+          data.modules.forEach(appendRow);
+          var loaded = data.start + data.modules.length;
+          if (loaded < data.total) {
+            status.textContent = loaded + " / " + data.total;
+            setTimeout(function () {
+              load(loaded, currentGeneration);
+            }, 0);
+          } else {
+            status.textContent = "";
+          }
+        })
+        .catch(function (e) {
+          if (currentGeneration === generation) {
+            status.textContent = e.message;
+          }
+        });
+    }
+
+    function reload(refresh) {
+      generation++;
+      clearRows();
+      var currentGeneration = generation;
+      if (!refresh) {
+        load(0, currentGeneration);
+        return;
+      }
+      var headers = typeof crumb !== "undefined" ? crumb.wrap({}) : {};
+      fetch(body.getAttribute("data-refresh-url"), { method: "POST", headers: headers })
+        .then(function () {
+          // the versions of the last computation are served if the refresh isn't permitted
+          load(0, currentGeneration);
+        })
+        .catch(function (e) {
+          if (currentGeneration === generation) {
+            status.textContent = e.message;
+          }
+        });
+    }
+
+    if (filter) {
+      filter.addEventListener("input", function () {
+        clearTimeout(filterTimer);
+        filterTimer = setTimeout(function () {
+          reload(false);
+        }, POLL_DELAY);
+      });
+      filter.addEventListener("keydown", function (e) {
+        // don't submit the release form
+        if (e.key === "Enter") {
+          e.preventDefault();
+        }
+      });
+    }
+    // only the initial page load recomputes the versions, polls and filtering reuse the result
+    reload(true);
+  }
+
+  if (document.readyState === "loading") {
+    document.addEventListener("DOMContentLoaded", init);
+  } else {
+    init();
+  }
+})();
@@ -0,0 +1,79 @@
+(function () {
+  var POLL_DELAY = 250;
+
+  function init() {
+    var checkbox = document.getElementById("unleash-partial-release");
+    var plan = document.getElementById("unleash-partial-release-plan");
+    if (!checkbox || !plan) {
+      return;
+    }
+    var generation = 0;
+
+    function line(text) {
+      var div = document.createElement("div");
+      div.textContent = text;
+      plan.appendChild(div);
+    }
+
+    function load(currentGeneration, refresh) {
+      var url = plan.getAttribute("data-url") + (refresh ? "?refresh=true" : "");
+      var headers = typeof crumb !== "undefined" ? crumb.wrap({}) : {};
+      fetch(url, { method: "POST", headers: headers })
+        .then(function (response) {
+          return response.json();
+        })
+        .then(function (json) {
+          if (currentGeneration !== generation) {
+            return;
+          }
+          if (json.status === "error") {
+            plan.textContent = "";
+            line(json.message);
+            return;
+          }
+          var data = json.data;
+          if (data.pending) {
+            setTimeout(function () {
+              load(currentGeneration, false);
+            }, POLL_DELAY);
+            return;
+          }
+          plan.textContent = "";
+          if (!data.partial) {
+            line("All modules will be released: " + data.fullReleaseReason);
+            return;
+          }
+          line("Changed since " + data.baseTag + ": " + data.changedModules.join(", "));
+          line("Released including dependents (" + data.affectedModules.length + "): " + data.affectedModules.join(", "));
+          if (data.ancestorModules.length > 0) {
+            line("Released parents (" + data.ancestorModules.length + "): " + data.ancestorModules.join(", "));
+          }
+        })
+        .catch(function (e) {
+          if (currentGeneration === generation) {
+            plan.textContent = e.message;
+          }
+        });
+    }
+
+    function show() {
+      generation++;
+      plan.textContent = "";
+      if (!checkbox.checked) {
+        return;
+      }
+      line("Computing the changed modules...");
+      // each time the option is checked the plan is recomputed, the polls reuse the running computation
+      load(generation, true);
+    }
+
+    checkbox.addEventListener("change", show);
+    show();
+  }
+
+  if (document.readyState === "loading") {
+    document.addEventListener("DOMContentLoaded", init);
+  } else {
+    init();
+  }
+})();
@@ -0,0 +1,105 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, NDS Group Ltd., James Nord, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.itemis.jenkins.plugins.unleash;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import hudson.util.ArgumentListBuilder;
+
+class UnleashArgumentInterceptorActionTest {
+  private static ArgumentListBuilder args(String... arguments) {
+    return new ArgumentListBuilder(arguments);
+  }
+
+  private static List<String> intercept(ArgumentListBuilder arguments, boolean incrementalBuild) {
+    return new UnleashArgumentInterceptorAction("goals").intercept(arguments, incrementalBuild).toList();
+  }
+
+  @Test
+  void keepsArgumentsOfNonIncrementalBuilds() {
+    assertEquals(Arrays.asList("-B", "-amd", "-pl", "m1", "install"),
+        intercept(args("-B", "-amd", "-pl", "m1", "install"), false));
+  }
+
+  @Test
+  void removesAlsoMakeDependentsBeforeProjects() {
+    assertEquals(Arrays.asList("-B", "install"), intercept(args("-B", "-amd", "-pl", "m1,m2", "install"), true));
+    assertEquals(Arrays.asList("-B", "install"),
+        intercept(args("-B", "--also-make-dependents", "--projects", "m1,m2", "install"), true));
+    assertEquals(Arrays.asList("-B", "install"), intercept(args("-B", "-amd", "--projects=m1,m2", "install"), true));
+  }
+
+  @Test
+  void removesAlsoMakeDependentsAfterProjects() {
+    assertEquals(Arrays.asList("-B", "install"), intercept(args("-B", "-pl", "m1,m2", "-amd", "install"), true));
+    assertEquals(Arrays.asList("-B", "install"),
+        intercept(args("-B", "--projects", "m1", "--also-make-dependents", "install"), true));
+    assertEquals(Arrays.asList("-B", "install"), intercept(args("-B", "--projects=m1", "-amd", "install"), true));
+  }
+
+  @Test
+  void keepsOptionsThatAreNotPartOfAnIncrementalBuild() {
+    assertEquals(Arrays.asList("-pl", "m1", "install"), intercept(args("-pl", "m1", "install"), true));
+    assertEquals(Arrays.asList("-amd", "install"), intercept(args("-amd", "install"), true));
+    assertEquals(Arrays.asList("--projects=", "-amd"), intercept(args("--projects=", "-amd"), true));
+    assertEquals(Arrays.asList("install", "-amd", "-pl"), intercept(args("install", "-amd", "-pl"), true));
+  }
+
+  @Test
+  void keepsMasksAligned() {
+    ArgumentListBuilder arguments = new ArgumentListBuilder();
+    arguments.add("-Dsecret=1", true);
+    arguments.add("-B");
+    arguments.add("-amd", "-pl", "m1");
+    arguments.add("-Dother=2", true);
+    arguments.add("install");
+
+    ArgumentListBuilder intercepted = new UnleashArgumentInterceptorAction("goals").intercept(arguments, true);
+    assertEquals(Arrays.asList("-Dsecret=1", "-B", "-Dother=2", "install"), intercepted.toList());
+    assertArrayEquals(new boolean[] { true, false, true, false }, intercepted.toMaskArray());
+  }
+
+  @Test
+  void restrictsPartialReleasesToTheProjects() {
+    ArgumentListBuilder intercepted = new UnleashArgumentInterceptorAction("goals", ":m1,:m2")
+        .intercept(args("-amd", "-pl", "m3", "install"), true);
+    assertEquals(Arrays.asList("install", "-pl", ":m1,:m2"), intercepted.toList());
+  }
+
+  @Test
+  void masksSeparateArguments() {
+    ArgumentListBuilder intercepted = new UnleashArgumentInterceptorAction("goals", null,
+        Arrays.asList("-Dunleash.releaseArgs=a=b c", "-Dunleash.hooks=echo 'x'"))
+            .intercept(args("-B", "install"), false);
+    assertEquals(Arrays.asList("-B", "install", "-Dunleash.releaseArgs=a=b c", "-Dunleash.hooks=echo 'x'"),
+        intercepted.toList());
+    assertArrayEquals(new boolean[] { false, false, true, true }, intercepted.toMaskArray());
+  }
+}
@@ -0,0 +1,83 @@
+package com.itemis.jenkins.plugins.unleash.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+class ParameterExpanderTest {
+  private static final Map<String, String> PARAMETERS = ImmutableMap.<String, String> builder()
+      .put("version", "1.0").put("stage", "prod").put("deploy_prod", "yes").put("empty", "")
+      .put("fallback", "0.9").put("reference", "${version}").build();
+
+  private static String expand(String input) {
+    return ParameterExpander.expand(input, name -> {
+      if (name.isEmpty()) {
+        throw new AssertionError("The resolver must not be called with an empty name.");
+      }
+      return PARAMETERS.get(name);
+    });
+  }
+
+  @Test
+  void expandsReferences() {
+    assertEquals("v1.0-prod", expand("v${version}-${stage}"));
+    assertEquals("no references", expand("no references"));
+  }
+
+  @Test
+  void expandsNestedNames() {
+    assertEquals("yes", expand("${deploy_${stage}}"));
+  }
+
+  @Test
+  void expandsDefaults() {
+    assertEquals("x", expand("${empty:-x}"));
+    assertEquals("1.0", expand("${version:-x}"));
+    assertEquals("0.9", expand("${empty:-${fallback}}"));
+    assertEquals("a:-b", expand("${empty:-a:-b}"));
+  }
+
+  @Test
+  void keepsUnknownReferences() {
+    assertEquals("${unknown}", expand("${unknown}"));
+    assertEquals("${unknown:-x}", expand("${unknown:-x}"));
+    assertEquals("$HOME ${PATH} 1.0", expand("$HOME ${PATH} ${version}"));
+  }
+
+  @Test
+  void copiesUnknownReferencesVerbatim() {
+    assertEquals("${unknown:-${version}}", expand("${unknown:-${version}}"));
+    assertEquals("${unknown:-$${x}}", expand("${unknown:-$${x}}"));
+  }
+
+  @Test
+  void unescapesDollarBrace() {
+    assertEquals("${version}", expand("$${version}"));
+    assertEquals("${version} 1.0", expand("$${version} ${version}"));
+    assertEquals("${x}", expand("${empty:-$${x}}"));
+  }
+
+  @Test
+  void doesNotExpandValuesAgain() {
+    assertEquals("${version}", expand("${reference}"));
+  }
+
+  @Test
+  void copiesUnterminatedReferences() {
+    assertEquals("a ${version", expand("a ${version"));
+    assertEquals("${a:-b", expand("${a:-b"));
+    assertEquals("${unterminated 1.0", expand("${unterminated ${version}"));
+    assertEquals("abc${", expand("abc${"));
+    assertEquals("abc$", expand("abc$"));
+  }
+
+  @Test
+  void copiesEmptyReferences() {
+    assertEquals("${}", expand("${}"));
+    assertEquals("${:-x} 1.0", expand("${:-x} ${version}"));
+  }
+}